@@ -0,0 +1,697 @@
+package edu.damago.java.tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Instances of this class represent tables of records in columnar ("struct-of-arrays") form.
+ * Integral columns are stored within {@code long[]}, decimal columns within {@code double[]},
+ * and text columns dictionary-encoded as {@code int[]} codes referencing distinct strings;
+ * any other columns, including those of mixed type, are stored as {@code Object[]}. Void
+ * values are tracked in per-column null bitmaps. Note that instances are immutable, and that
+ * the arrays returned by the column accessors must therefore not be modified.
+ * @author Sascha Baumeister
+ */
+public class ColumnTable {
+	private final int rowCount;
+	private final Map<String,Column> columns;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param rowCount the row count
+	 * @param columns the columns, in column order
+	 */
+	private ColumnTable (final int rowCount, final Map<String,Column> columns) {
+		this.rowCount = rowCount;
+		this.columns = columns;
+	}
+
+
+	/**
+	 * Returns the number of rows.
+	 * @return the row count
+	 */
+	public int rowCount () {
+		return this.rowCount;
+	}
+
+
+	/**
+	 * Returns the column names, in column order.
+	 * @return the column names
+	 */
+	public List<String> columnNames () {
+		return Collections.unmodifiableList(new ArrayList<>(this.columns.keySet()));
+	}
+
+
+	/**
+	 * Returns the column with the given name.
+	 * @param name the column name
+	 * @return the column, or {@code null} if there is none
+	 */
+	public Column column (final String name) {
+		return this.columns.get(name);
+	}
+
+
+	/**
+	 * Returns the value at the given row within the given column.
+	 * @param row the row index
+	 * @param name the column name
+	 * @return the value, or {@code null} for void values or unknown columns
+	 * @throws IndexOutOfBoundsException if the given row index is out of bounds
+	 */
+	public Object get (final int row, final String name) throws IndexOutOfBoundsException {
+		if (row < 0 | row >= this.rowCount) throw new IndexOutOfBoundsException(row);
+
+		final Column column = this.columns.get(name);
+		return column == null ? null : column.get(row);
+	}
+
+
+
+	/**
+	 * Instances of this class represent the columns of column tables.
+	 */
+	static public abstract class Column {
+		private final String name;
+		private final int size;
+		private final BitSet nulls;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param name the column name
+		 * @param size the number of rows
+		 * @param nulls the null bitmap
+		 */
+		private Column (final String name, final int size, final BitSet nulls) {
+			this.name = name;
+			this.size = size;
+			this.nulls = nulls;
+		}
+
+
+		/**
+		 * Returns the column name.
+		 * @return the name
+		 */
+		public String name () {
+			return this.name;
+		}
+
+
+		/**
+		 * Returns the number of rows.
+		 * @return the row count
+		 */
+		public int size () {
+			return this.size;
+		}
+
+
+		/**
+		 * Returns whether or not the value at the given row is void.
+		 * @param row the row index
+		 * @return {@code true} if the value is void, {@code false} otherwise
+		 */
+		public boolean isNull (final int row) {
+			return this.nulls.get(row);
+		}
+
+
+		/**
+		 * Returns the value at the given row, boxing it if necessary.
+		 * @param row the row index
+		 * @return the value, or {@code null} if it is void
+		 * @throws IndexOutOfBoundsException if the given row index is out of bounds
+		 */
+		public abstract Object get (int row) throws IndexOutOfBoundsException;
+	}
+
+
+
+	/**
+	 * Instances of this class represent integral columns.
+	 */
+	static public class LongColumn extends Column {
+		private final long[] values;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param name the column name
+		 * @param nulls the null bitmap
+		 * @param values the values, with void values represented as zero
+		 */
+		private LongColumn (final String name, final BitSet nulls, final long[] values) {
+			super(name, values.length, nulls);
+			this.values = values;
+		}
+
+
+		/**
+		 * Returns the values, with void values represented as zero.
+		 * @return the values
+		 */
+		public long[] values () {
+			return this.values;
+		}
+
+
+		/**
+		 * Returns the value at the given row.
+		 * @param row the row index
+		 * @return the value, or zero if it is void
+		 * @throws IndexOutOfBoundsException if the given row index is out of bounds
+		 */
+		public long getLong (final int row) throws IndexOutOfBoundsException {
+			return this.values[row];
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object get (final int row) throws IndexOutOfBoundsException {
+			final long value = this.values[row];
+			return this.isNull(row) ? null : value;
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class represent decimal columns.
+	 */
+	static public class DoubleColumn extends Column {
+		private final double[] values;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param name the column name
+		 * @param nulls the null bitmap
+		 * @param values the values, with void values represented as zero
+		 */
+		private DoubleColumn (final String name, final BitSet nulls, final double[] values) {
+			super(name, values.length, nulls);
+			this.values = values;
+		}
+
+
+		/**
+		 * Returns the values, with void values represented as zero.
+		 * @return the values
+		 */
+		public double[] values () {
+			return this.values;
+		}
+
+
+		/**
+		 * Returns the value at the given row.
+		 * @param row the row index
+		 * @return the value, or zero if it is void
+		 * @throws IndexOutOfBoundsException if the given row index is out of bounds
+		 */
+		public double getDouble (final int row) throws IndexOutOfBoundsException {
+			return this.values[row];
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object get (final int row) throws IndexOutOfBoundsException {
+			final double value = this.values[row];
+			return this.isNull(row) ? null : value;
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class represent dictionary-encoded text columns.
+	 */
+	static public class StringColumn extends Column {
+		private final int[] codes;
+		private final String[] dictionary;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param name the column name
+		 * @param nulls the null bitmap
+		 * @param codes the dictionary codes, with void values represented as {@code -1}
+		 * @param dictionary the distinct values, in order of first occurrence
+		 */
+		private StringColumn (final String name, final BitSet nulls, final int[] codes, final String[] dictionary) {
+			super(name, codes.length, nulls);
+			this.codes = codes;
+			this.dictionary = dictionary;
+		}
+
+
+		/**
+		 * Returns the dictionary codes, with void values represented as {@code -1}.
+		 * @return the codes, each referencing an element of the dictionary
+		 */
+		public int[] codes () {
+			return this.codes;
+		}
+
+
+		/**
+		 * Returns the dictionary.
+		 * @return the distinct values, in order of first occurrence
+		 */
+		public String[] dictionary () {
+			return this.dictionary;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String get (final int row) throws IndexOutOfBoundsException {
+			final int code = this.codes[row];
+			return code == -1 ? null : this.dictionary[code];
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class represent columns of any other or mixed type.
+	 */
+	static public class ObjectColumn extends Column {
+		private final Object[] values;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param name the column name
+		 * @param nulls the null bitmap
+		 * @param values the values
+		 */
+		private ObjectColumn (final String name, final BitSet nulls, final Object[] values) {
+			super(name, values.length, nulls);
+			this.values = values;
+		}
+
+
+		/**
+		 * Returns the values.
+		 * @return the values
+		 */
+		public Object[] values () {
+			return this.values;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object get (final int row) throws IndexOutOfBoundsException {
+			return this.values[row];
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class build column tables row by row. Columns may be introduced at any
+	 * row, and may be omitted by any row; any missing values are void. Column storage grows
+	 * geometrically, and each column's type is widened as required by it's values, from integral
+	 * to decimal, and from any type to objects. Note that instances are not thread-safe.
+	 */
+	static class Builder {
+		private final Map<String,ColumnBuilder> columns = new LinkedHashMap<>();
+		private final List<ColumnBuilder> columnList = new ArrayList<>();
+		private int rowCount;
+
+
+		/**
+		 * Returns the column builder for the given column name, creating it if necessary.
+		 * The given column index is used as a hint to avoid a hash lookup for records
+		 * sharing the same key order.
+		 * @param name the column name
+		 * @param index the expected column index
+		 * @return the column builder
+		 */
+		public ColumnBuilder column (final String name, final int index) {
+			if (index < this.columnList.size()) {
+				final ColumnBuilder column = this.columnList.get(index);
+				if (column.name.equals(name)) return column;
+			}
+
+			ColumnBuilder column = this.columns.get(name);
+			if (column == null) {
+				column = new ColumnBuilder(name);
+				this.columns.put(name, column);
+				this.columnList.add(column);
+			}
+			return column;
+		}
+
+
+		/**
+		 * Returns the index of the current row.
+		 * @return the current row index
+		 */
+		public int row () {
+			return this.rowCount;
+		}
+
+
+		/**
+		 * Completes the current row.
+		 */
+		public void endRow () {
+			this.rowCount += 1;
+		}
+
+
+		/**
+		 * Returns a new column table containing the rows completed so far.
+		 * @return the column table
+		 */
+		public ColumnTable build () {
+			final Map<String,Column> columns = new LinkedHashMap<>();
+			for (final ColumnBuilder column : this.columnList)
+				columns.put(column.name, column.build(this.rowCount));
+
+			return new ColumnTable(this.rowCount, columns);
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class build single columns, see {@link Builder}.
+	 */
+	static class ColumnBuilder {
+		static private final byte VOID = 0, LONG = 1, DOUBLE = 2, STRING = 3, OBJECT = 4;
+
+		private final String name;
+		private final BitSet nulls;
+		private byte type;
+		private int size;
+		private long[] longs;
+		private double[] doubles;
+		private int[] codes;
+		private Map<String,Integer> codeMap;
+		private List<String> dictionary;
+		private Object[] objects;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param name the column name
+		 */
+		private ColumnBuilder (final String name) {
+			this.name = name;
+			this.nulls = new BitSet();
+			this.type = VOID;
+		}
+
+
+		/**
+		 * Declares the type of this column while it contains no other than void values, which
+		 * determines the column's storage even if no non-void values are set subsequently.
+		 * @param type the value type, either {@code long.class}, {@code double.class},
+		 *        {@code String.class}, or {@code Object.class}
+		 * @throws IllegalArgumentException if the given type is not supported
+		 */
+		public void declare (final Class<?> type) throws IllegalArgumentException {
+			final byte target = type == long.class ? LONG : type == double.class ? DOUBLE : type == String.class ? STRING : type == Object.class ? OBJECT : VOID;
+			if (target == VOID) throw new IllegalArgumentException(String.valueOf(type));
+			if (this.type == VOID) this.convert(target);
+		}
+
+
+		/**
+		 * Sets the void value for the given row.
+		 * @param row the row index
+		 */
+		public void setNull (final int row) {
+			this.moveTo(row);
+			if (this.type == STRING) this.codes[row] = -1;
+			this.nulls.set(row);
+			this.size = row + 1;
+		}
+
+
+		/**
+		 * Sets the given integral value for the given row.
+		 * @param row the row index
+		 * @param value the value
+		 */
+		public void setLong (final int row, final long value) {
+			if (this.type == VOID) this.convert(LONG);
+			if (this.type == DOUBLE) {
+				this.setDouble(row, value);
+				return;
+			}
+			if (this.type != LONG) {
+				this.setObject(row, value);
+				return;
+			}
+
+			this.moveTo(row);
+			this.longs[row] = value;
+			this.size = row + 1;
+		}
+
+
+		/**
+		 * Sets the given decimal value for the given row.
+		 * @param row the row index
+		 * @param value the value
+		 */
+		public void setDouble (final int row, final double value) {
+			if (this.type == VOID | this.type == LONG) this.convert(DOUBLE);
+			if (this.type != DOUBLE) {
+				this.setObject(row, value);
+				return;
+			}
+
+			this.moveTo(row);
+			this.doubles[row] = value;
+			this.size = row + 1;
+		}
+
+
+		/**
+		 * Sets the given text value for the given row.
+		 * @param row the row index
+		 * @param value the value, or {@code null}
+		 */
+		public void setString (final int row, final String value) {
+			if (value == null) {
+				this.setNull(row);
+				return;
+			}
+			if (this.type == VOID) this.convert(STRING);
+			if (this.type != STRING) {
+				this.setObject(row, value);
+				return;
+			}
+
+			Integer code = this.codeMap.get(value);
+			if (code == null) {
+				code = this.dictionary.size();
+				this.codeMap.put(value, code);
+				this.dictionary.add(value);
+			}
+
+			this.moveTo(row);
+			this.codes[row] = code;
+			this.size = row + 1;
+		}
+
+
+		/**
+		 * Sets the given value of any type for the given row, storing it as
+		 * efficiently as the column's current type permits.
+		 * @param row the row index
+		 * @param value the value, or {@code null}
+		 */
+		public void setObject (final int row, final Object value) {
+			if (value == null) {
+				this.setNull(row);
+				return;
+			}
+			final boolean numeric = this.type == VOID | this.type == LONG | this.type == DOUBLE;
+			if (numeric && (value instanceof Long | value instanceof Integer | value instanceof Short | value instanceof Byte)) {
+				this.setLong(row, ((Number) value).longValue());
+				return;
+			}
+			if (numeric && (value instanceof Double | value instanceof Float)) {
+				this.setDouble(row, ((Number) value).doubleValue());
+				return;
+			}
+			if ((this.type == VOID | this.type == STRING) && value instanceof String) {
+				this.setString(row, (String) value);
+				return;
+			}
+			if (this.type != OBJECT) this.convert(OBJECT);
+
+			this.moveTo(row);
+			this.objects[row] = value;
+			this.size = row + 1;
+		}
+
+
+		/**
+		 * Prepares setting the value of the given row. Rows skipped become void, and any value
+		 * already set for the given row is discarded, which lets duplicate keys overwrite. The
+		 * storage of the column's current type is grown to accommodate the given row, which
+		 * keeps it at least as large as the column size.
+		 * @param row the row index
+		 */
+		private void moveTo (final int row) {
+			switch (this.type) {
+				case LONG:
+					if (row >= this.longs.length) this.longs = Arrays.copyOf(this.longs, capacity(row));
+					break;
+				case DOUBLE:
+					if (row >= this.doubles.length) this.doubles = Arrays.copyOf(this.doubles, capacity(row));
+					break;
+				case STRING:
+					if (row >= this.codes.length) this.codes = Arrays.copyOf(this.codes, capacity(row));
+					break;
+				case OBJECT:
+					if (row >= this.objects.length) this.objects = Arrays.copyOf(this.objects, capacity(row));
+					break;
+				default:
+					break;
+			}
+
+			if (row < this.size) {
+				this.size = row;
+				this.nulls.clear(row);
+				if (this.type == LONG) this.longs[row] = 0;
+				else if (this.type == DOUBLE) this.doubles[row] = 0;
+				else if (this.type == STRING) this.codes[row] = -1;
+				else if (this.type == OBJECT) this.objects[row] = null;
+			}
+
+			if (row > this.size) {
+				this.nulls.set(this.size, row);
+				if (this.type == STRING) Arrays.fill(this.codes, this.size, row, -1);
+				this.size = row;
+			}
+		}
+
+
+		/**
+		 * Converts the stored values to the given type.
+		 * @param type the target type
+		 */
+		private void convert (final byte type) {
+			final int capacity = capacity(this.size);
+			switch (type) {
+				case LONG:
+					this.longs = new long[capacity];
+					break;
+				case DOUBLE:
+					this.doubles = new double[capacity];
+					if (this.type == LONG) {
+						for (int row = 0; row < this.size; ++row) this.doubles[row] = this.longs[row];
+						this.longs = null;
+					}
+					break;
+				case STRING:
+					this.codes = new int[capacity];
+					Arrays.fill(this.codes, 0, this.size, -1);
+					this.codeMap = new HashMap<>();
+					this.dictionary = new ArrayList<>();
+					break;
+				default:
+					this.objects = new Object[capacity];
+					for (int row = 0; row < this.size; ++row)
+						this.objects[row] = this.value(row);
+					this.longs = null;
+					this.doubles = null;
+					this.codes = null;
+					this.codeMap = null;
+					this.dictionary = null;
+					break;
+			}
+
+			this.type = type;
+		}
+
+
+		/**
+		 * Returns the boxed value at the given row.
+		 * @param row the row index
+		 * @return the value, or {@code null}
+		 */
+		private Object value (final int row) {
+			if (this.nulls.get(row)) return null;
+
+			switch (this.type) {
+				case LONG:
+					return this.longs[row];
+				case DOUBLE:
+					return this.doubles[row];
+				case STRING:
+					return this.dictionary.get(this.codes[row]);
+				case OBJECT:
+					return this.objects[row];
+				default:
+					return null;
+			}
+		}
+
+
+		/**
+		 * Returns a new column containing the given number of rows; missing trailing rows are void.
+		 * @param rowCount the row count
+		 * @return the column
+		 */
+		private Column build (final int rowCount) {
+			if (this.size < rowCount) this.setNull(rowCount - 1);
+
+			final BitSet nulls = (BitSet) this.nulls.clone();
+			switch (this.type) {
+				case LONG:
+					return new LongColumn(this.name, nulls, Arrays.copyOf(this.longs, rowCount));
+				case DOUBLE:
+					return new DoubleColumn(this.name, nulls, Arrays.copyOf(this.doubles, rowCount));
+				case STRING:
+					return new StringColumn(this.name, nulls, Arrays.copyOf(this.codes, rowCount), this.dictionary.toArray(new String[0]));
+				case OBJECT:
+					return new ObjectColumn(this.name, nulls, Arrays.copyOf(this.objects, rowCount));
+				default:
+					return new ObjectColumn(this.name, nulls, new Object[rowCount]);
+			}
+		}
+
+
+		/**
+		 * Returns a grown capacity able to accommodate the given row index.
+		 * @param row the row index
+		 * @return the capacity
+		 */
+		static private int capacity (final int row) {
+			return Math.max(16, Math.max(row + 1, row + (row >> 1)));
+		}
+	}
+}
@@ -1,10 +1,16 @@
 package edu.damago.java.tool;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 
 /**
@@ -13,6 +19,20 @@ import java.util.Objects;
  * @author Sascha Baumeister
  */
 public class JSON {
+	static public enum ParseOption {
+		/** Numbers are returned as lazily parsed numbers, retaining their raw text until their value is requested. */
+		LAZY_NUMBERS,
+
+		/** Non-empty arrays consisting solely of numbers are returned as {@code long[]} if all of them are integral, otherwise as {@code double[]}. */
+		PRIMITIVE_ARRAYS,
+
+		/** Large top-level arrays are split at their element boundaries, and their elements are parsed in parallel. */
+		PARALLEL
+	}
+
+	static private final int CHANNEL_BUFFER_SIZE = 0x10000;
+	static private final ThreadLocal<ByteBuffer> CHANNEL_BUFFERS = new ThreadLocal<>();
+
 
 	/**
 	 * Prevents external instantiation.
@@ -28,236 +48,277 @@ public class JSON {
 	 *         {@code null} nor an instance of Boolean, Number, String, Map, List, or an array
 	 */
 	static public String stringify (final Object object) {
-		if (object == null | object instanceof Boolean | object instanceof Number) return Objects.toString(object);
 		final StringBuilder builder = new StringBuilder();
+		try {
+			stringify(object, builder);
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
 
-		if (object instanceof Object[] | object instanceof List) {
-			final Object[] array = object instanceof Object[]
-				? (Object[]) object
-				: ((List<?>) object).toArray();
+		return builder.toString();
+	}
 
-			builder.append("[");
-			for (int index = 0; index < array.length; ++index) {
-				if (index > 0) builder.append(", ");
-				builder.append(stringify(array[index]));
-			}
-			builder.append("]");
 
-			return builder.toString();
-		}
+	/**
+	 * Writes the JSON representation for the given object into the given sink, emitting
+	 * it's tokens directly instead of building intermediate strings.
+	 * @param object the object, or {@code null}
+	 * @param sink the appendable to write into, like a Writer, a PrintStream, or a StringBuilder
+	 * @throws NullPointerException if the given sink is {@code null}
+	 * @throws IllegalArgumentException if the object, or one of it's constituents, is neither
+	 *         {@code null} nor an instance of Boolean, Number, String, Map, List, or an array
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void stringify (final Object object, final Appendable sink) throws NullPointerException, IllegalArgumentException, IOException {
+		new JsonWriter(sink).write(object);
+	}
 
-		if (object instanceof Map) {
-			builder.append("{");
 
-			@SuppressWarnings("unchecked")
-			final Map<String,Object> map = (Map<String,Object>) object;
-			for (final String key : map.keySet()) {
-				builder.append(stringify(key));
-				builder.append(": ");
-				builder.append(stringify(map.get(key)));
-				builder.append(", ");
-			}
+	/**
+	 * Writes the UTF-8 encoded JSON representation for the given object into the given channel,
+	 * encoding it's tokens directly into bytes, see {@link JsonChannelSink}. The channel must be
+	 * in blocking mode, and is not closed. The direct encoding buffer is reused by subsequent
+	 * calls of the same thread.
+	 * @param object the object, or {@code null}
+	 * @param channel the channel to write into, like a SocketChannel or a FileChannel
+	 * @throws NullPointerException if the given channel is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void stringify (final Object object, final WritableByteChannel channel) throws NullPointerException, IOException {
+		ByteBuffer buffer = CHANNEL_BUFFERS.get();
+		if (buffer == null) buffer = ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE);
+		else CHANNEL_BUFFERS.remove();
 
-			if (!map.isEmpty()) builder.delete(builder.length() - 2, builder.length());
-			builder.append("}");
-			return builder.toString();
+		try {
+			stringify(object, channel, buffer);
+		} finally {
+			CHANNEL_BUFFERS.set(buffer);
 		}
-
-		return "'" + object.toString().replace("'", "\\'").replace("\"", "\\\"").replace("\t", "\\t").replace("\n", "\\n") + "'";
 	}
 
 
 	/**
-	 * Returns an object parsed from the given JSON representation.
-	 * @param json the JSON representation
-	 * @return the object, or null
-	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the argument is not valid JSON
-	 * @throws ClassCastException if the result is either not compatible to, or implicitly cast
-	 * 			to something different from either Object, Boolean, Number (Long or Double),
-	 * 			String, Map<String,Object>, or Object[]
+	 * Writes the UTF-8 encoded JSON representation for the given object into the given channel,
+	 * encoding it's tokens directly into the given buffer, see {@link JsonChannelSink}. The channel
+	 * must be in blocking mode, and is not closed. The buffer may be reused once this call returns.
+	 * @param object the object, or {@code null}
+	 * @param channel the channel to write into, like a SocketChannel or a FileChannel
+	 * @param buffer the buffer to encode into, with a capacity of at least 4 bytes
+	 * @throws NullPointerException if the given channel or buffer is {@code null}
+	 * @throws IllegalArgumentException if the given buffer is read-only, or smaller than 4 bytes
+	 * @throws IOException if there is an I/O related problem
 	 */
-	@SuppressWarnings("unchecked")
-	static public <T> T parse (String json) throws NullPointerException, IllegalArgumentException, ClassCastException {
-		if (json.trim().isEmpty()) throw new IllegalArgumentException(json);
-		json = json.trim();
-
-		switch (json.charAt(0)) {
-			case 'n': case 'u':
-				return (T) parseVoid(json);				
-			case 't': case 'f':
-				return (T) parseBoolean(json);				
-			case '"': case '\'':
-				return (T) parseString(json);
-			case '[':
-				return (T) parseArray(json);
-			case '{':
-				return (T) parseMap(json);
-			default:
-				return (T) parseNumber(json);
-		}
+	static public void stringify (final Object object, final WritableByteChannel channel, final ByteBuffer buffer) throws NullPointerException, IllegalArgumentException, IOException {
+		final JsonChannelSink sink = new JsonChannelSink(channel, buffer);
+		stringify(object, sink);
+		sink.flush();
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created map.
-	 * @param json the JSON representation
-	 * @return the map
-	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON map
+	 * Returns the JSON representation for the given object. Lists, arrays and maps with at least
+	 * the given number of elements or entries are split into chunks, which are stringified in
+	 * parallel, and joined in order. The result is identical to the one of {@link #stringify(Object)}.
+	 * @param object the object, or {@code null}
+	 * @param parallelThreshold the minimum number of elements or entries for a collection to be stringified in parallel
+	 * @return the JSON representation
+	 * @throws IllegalArgumentException if the given threshold is negative or zero
 	 */
-	static private Map<String,Object> parseMap (final String json) throws NullPointerException, IllegalArgumentException {
-		if (json.length() < 2 | !json.startsWith("{") | !json.endsWith("}")) throw new IllegalArgumentException(json);
-
-		final Map<String,Object> map = new HashMap<>();
-		for (int index = 1, startIndex; index < json.length(); ++index) {
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (json.charAt(index) == '}') break;
-			if (json.charAt(index) != '"' & json.charAt(index) != '\'') throw new IllegalArgumentException(json);
-
-			startIndex = index;
-			index = matchingDelimiterPosition(json, startIndex) + 1;
-			final String key = parseString(json.substring(startIndex, index));
-
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (json.charAt(index++) != ':') throw new IllegalArgumentException(json);
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-
-			startIndex = index;
-			if (json.charAt(index) == '{' | json.charAt(index) == '[' | json.charAt(index) == '"' | json.charAt(index) == '\'')
-				index = matchingDelimiterPosition(json, startIndex) + 1;
-			else
-				while (index < json.length() && json.charAt(index) != ',' && json.charAt(index) != '}') index += 1;
-
-			final Object value = parse(json.substring(startIndex, index).trim());
-			map.put(key, value);
-
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (index < json.length() && json.charAt(index) != ',' && json.charAt(index) != '}') throw new IllegalArgumentException(json);
+	static public String stringify (final Object object, final int parallelThreshold) throws IllegalArgumentException {
+		final StringBuilder builder = new StringBuilder();
+		try {
+			stringify(object, builder, parallelThreshold);
+		} catch (final IOException e) {
+			throw new AssertionError(e);
 		}
 
-		return map;
+		return builder.toString();
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created array.
-	 * @param json the JSON representation
-	 * @return the array
-	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON array
+	 * Writes the JSON representation for the given object into the given sink. Lists, arrays and
+	 * maps with at least the given number of elements or entries are split into chunks, which are
+	 * stringified in parallel into separate buffers, and written into the sink in order.
+	 * @param object the object, or {@code null}
+	 * @param sink the appendable to write into, like a Writer, a PrintStream, or a StringBuilder
+	 * @param parallelThreshold the minimum number of elements or entries for a collection to be stringified in parallel
+	 * @throws NullPointerException if the given sink is {@code null}
+	 * @throws IllegalArgumentException if the given threshold is negative or zero
+	 * @throws IOException if there is an I/O related problem
 	 */
-	static private Object[] parseArray (final String json) throws NullPointerException, IllegalArgumentException {
-		if (json.length() < 2 | !json.startsWith("[") | !json.endsWith("]")) throw new IllegalArgumentException(json);
-
-		final List<Object> list = new ArrayList<>();
-		for (int index = 1; index < json.length(); ++index) {
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (json.charAt(index) == ']') break;
+	static public void stringify (final Object object, final Appendable sink, final int parallelThreshold) throws NullPointerException, IllegalArgumentException, IOException {
+		if (sink == null) throw new NullPointerException();
+		if (parallelThreshold <= 0) throw new IllegalArgumentException(String.valueOf(parallelThreshold));
 
-			final int startIndex = index;
-			if (json.charAt(index) == '{' | json.charAt(index) == '[' | json.charAt(index) == '"' | json.charAt(index) == '\'')
-				index = matchingDelimiterPosition(json, startIndex) + 1;
-			else
-				while (index < json.length() && json.charAt(index) != ',' && json.charAt(index) != ']') index += 1;
-
-			final Object element = parse(json.substring(startIndex, index).trim());
-			list.add(element);
-
-			while (index < json.length() && Character.isWhitespace(json.charAt(index))) index += 1;
-			if (index < json.length() && json.charAt(index) != ',' && json.charAt(index) != ']') throw new IllegalArgumentException(json);
-		}
-
-		return list.toArray();
+		JsonParallelWriter.write(object, sink, parallelThreshold);
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created string.
+	 * Returns an object parsed from the given JSON representation. The representation
+	 * is parsed in a single pass, without creating intermediate substrings.
 	 * @param json the JSON representation
-	 * @return the string
+	 * @return the object, or null
 	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON string
+	 * @throws IllegalArgumentException if the argument is not valid JSON
+	 * @throws ClassCastException if the result is either not compatible to, or implicitly cast
+	 * 			to something different from either Object, Boolean, Number (Long or Double),
+	 * 			String, Map<String,Object>, or Object[]
 	 */
-	static private String parseString (final String json) throws NullPointerException, IllegalArgumentException {
-		if (json.length() < 2 | !((json.startsWith("\"") & json.endsWith("\"")) | (json.startsWith("'") & json.endsWith("'")))) throw new IllegalArgumentException(json);
-
-		return json.substring(1, json.length() - 1).replace("\\'", "'").replace("\\\"", "\"").replace("\\t", "\t").replace("\\n", "\n");
+	@SuppressWarnings("unchecked")
+	static public <T> T parse (final String json) throws NullPointerException, IllegalArgumentException, ClassCastException {
+		return (T) new JsonParser(json, 0, json.length()).parse();
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created numeric value.
+	 * Returns an object parsed from the given JSON representation, using the given parse options.
 	 * @param json the JSON representation
-	 * @return the numeric value, either of type {@code Long} or {@code Double}
-	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON number
+	 * @param options the parse options as a var-arg array
+	 * @return the object, or null
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the argument is not valid JSON
+	 * @throws ClassCastException if the result is either not compatible to, or implicitly cast
+	 * 			to something different from either Object, Boolean, Number, String,
+	 * 			Map<String,Object>, Object[], long[], or double[]
 	 */
-	static private Number parseNumber (final String json) throws NullPointerException, IllegalArgumentException {
-		try {
-			return Long.parseLong(json);
-		} catch (final NumberFormatException e) {
-			return Double.parseDouble(json);
-		}
+	@SuppressWarnings("unchecked")
+	static public <T> T parse (final String json, final ParseOption... options) throws NullPointerException, IllegalArgumentException, ClassCastException {
+		final Set<ParseOption> optionSet = EnumSet.noneOf(ParseOption.class);
+		Collections.addAll(optionSet, options);
+		if (optionSet.contains(ParseOption.PARALLEL)) return (T) JsonParallelParser.parse(json, optionSet);
+		return (T) new JsonParser(json, 0, json.length(), new JsonShape(), optionSet).parse();
 	}
 
 
 	/**
-	 * Converts the given JSON representation into the content of a newly created boolean value.
+	 * Returns an object of the given type parsed from the given JSON representation. JavaBeans
+	 * are populated directly from the JSON representation, without intermediate maps; JSON map
+	 * entries without a matching bean property are ignored.
+	 * @param <T> the result type
 	 * @param json the JSON representation
-	 * @return the Boolean value
-	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON boolean
+	 * @param type the result type, either a JavaBean class, a primitive, wrapper, String or enum
+	 * 			class, or a type compatible to the results of {@link #parse(String)}
+	 * @return the object, or null
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the JSON representation is invalid,
+	 * 			or does not match the given type
 	 */
-	static private Boolean parseBoolean (final String json) throws NullPointerException, IllegalArgumentException {
-		if (json.equals("true")) return true;
-		if (json.equals("false")) return false;
-		throw new IllegalArgumentException(json);
+	@SuppressWarnings("unchecked")
+	static public <T> T parse (final String json, final Class<T> type) throws NullPointerException, IllegalArgumentException {
+		try (JsonReader reader = new JsonReader(new StringReader(json), json.length() + 1)) {
+			final T result = (T) JsonBinder.readValue(reader, type);
+			if (reader.peek() != JsonReader.Token.END_DOCUMENT) throw new IllegalArgumentException("trailing content after JSON value");
+			return result;
+		} catch (final IllegalStateException e) {
+			throw new IllegalArgumentException(e);
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
 	}
 
 
 	/**
-	 * Converts the given JSON representation into {@code null}.
+	 * Returns a column table parsed from the given JSON representation of an array of maps,
+	 * without creating intermediate maps. Each distinct map key becomes a column, integral
+	 * and decimal numbers are stored in primitive arrays, and strings are dictionary-encoded,
+	 * see {@link ColumnTable}. Keys missing from a map, and {@code null} values, are void.
 	 * @param json the JSON representation
-	 * @return the {@code null} value
+	 * @return the column table
 	 * @throws NullPointerException if the given argument is {@code null}
-	 * @throws IllegalArgumentException if the given JSON does not represent a valid JSON void
+	 * @throws IllegalArgumentException if the argument is not valid JSON, or not an array of maps
 	 */
-	static private Void parseVoid (final String json) throws NullPointerException, IllegalArgumentException {
-		if (!json.equals("null") & !json.equals("undefined")) throw new IllegalArgumentException(json);
+	static public ColumnTable parseColumns (final String json) throws NullPointerException, IllegalArgumentException {
+		final ColumnTable.Builder builder = new ColumnTable.Builder();
+		try (JsonReader reader = new JsonReader(new StringReader(json), json.length() + 1)) {
+			if (reader.nextToken() != JsonReader.Token.BEGIN_ARRAY) throw new IllegalArgumentException("array expected");
+			while (reader.hasNext()) {
+				if (reader.nextToken() != JsonReader.Token.BEGIN_OBJECT) throw new IllegalArgumentException("map expected");
+
+				final int row = builder.row();
+				for (int index = 0; reader.hasNext(); ++index) {
+					final ColumnTable.ColumnBuilder column = builder.column(reader.nextName(), index);
+					switch (reader.peek()) {
+						case NUMBER:
+							final Number number = reader.nextNumber();
+							if (number instanceof Long) column.setLong(row, number.longValue());
+							else column.setDouble(row, number.doubleValue());
+							break;
+						case STRING:
+							column.setString(row, reader.nextString());
+							break;
+						case NULL:
+							reader.nextNull();
+							column.setNull(row);
+							break;
+						default:
+							column.setObject(row, reader.nextValue());
+							break;
+					}
+				}
+
+				reader.nextToken();
+				builder.endRow();
+			}
+
+			reader.nextToken();
+			if (reader.peek() != JsonReader.Token.END_DOCUMENT) throw new IllegalArgumentException("trailing content after JSON value");
+		} catch (final IllegalStateException e) {
+			throw new IllegalArgumentException(e);
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
 
-		return null;
+		return builder.build();
 	}
 
 
 	/**
-	 * Returns the position of the stop delimiter matching the start delimiter at the given position.
-	 * @param json the JSON representation
-	 * @param startPosition the start delimiter position
-	 * @return the matching stop delimiter position
-	 * @throws NullPointerException if the given JSON argument is {@code null}
-	 * @throws IllegalArgumentException if the given start position is out of range,
-	 *			or if the given JSON doesn't contain a matching stop delimiter
+	 * Returns an object parsed from the given UTF-8 encoded JSON representation, consisting of
+	 * the remaining bytes of the given buffer. The bytes are parsed directly, without decoding
+	 * them into characters first. Map keys are decoded eagerly, while string values are returned
+	 * as {@link CharSequence} instances which are only decoded once they are accessed; these
+	 * require the buffer to remain unmodified while they are in use. Like other character
+	 * sequences except Strings, they do not define content-based equality; use either
+	 * {@link String#contentEquals(CharSequence)} or {@code toString()} to compare or hash
+	 * their content. The buffer's position and limit are not modified.
+	 * @param json the UTF-8 encoded JSON representation
+	 * @param options the parse options as a var-arg array
+	 * @return the object, or null
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the argument is not valid JSON
+	 * @throws ClassCastException if the result is either not compatible to, or implicitly cast
+	 * 			to something different from either Object, Boolean, Number (Long or Double),
+	 * 			CharSequence, Map<String,Object>, Object[], long[], or double[]
 	 */
-	static private int matchingDelimiterPosition (final String json, final int startPosition) throws NullPointerException, IllegalArgumentException {
-		if (startPosition < 0 | startPosition >= json.length()) throw new IllegalArgumentException(json);
-		final char startDelimiter = json.charAt(startPosition);
-
-		if (startDelimiter == '"' | startDelimiter == '\'') {
-			for (int index = startPosition + 1; index < json.length(); ++index) {
-				final char character = json.charAt(index);
-				if (character == startDelimiter & json.charAt(index - 1) != '\\') return index;
-			}
-		} else if (startDelimiter == '{' | startDelimiter == '[') {
-			for (int index = startPosition + 1; index < json.length(); ++index) {
-				final char character = json.charAt(index);
-				if ((startDelimiter == '{' & character == '}') | (startDelimiter == '[' & character == ']')) return index;
+	@SuppressWarnings("unchecked")
+	static public <T> T parse (final ByteBuffer json, final ParseOption... options) throws NullPointerException, IllegalArgumentException, ClassCastException {
+		final Set<ParseOption> optionSet = EnumSet.noneOf(ParseOption.class);
+		Collections.addAll(optionSet, options);
+		if (optionSet.contains(ParseOption.PARALLEL)) return (T) JsonParallelParser.parse(json, optionSet);
+		return (T) new JsonByteParser(json, new JsonShape(), optionSet).parse();
+	}
 
-				if (character == '{' | character == '[' | character == '"' | character == '\'')
-					index = matchingDelimiterPosition(json, index);
-			}
-		}
 
-		throw new IllegalArgumentException(json);
+	/**
+	 * Returns an object parsed from the given UTF-8 encoded JSON file, which is memory-mapped
+	 * instead of being read into the heap. String values are returned as lazily decoded
+	 * {@link CharSequence} instances, see {@link #parse(ByteBuffer)}.
+	 * @param jsonPath the JSON file path
+	 * @return the object, or null
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the file content is not valid JSON, or if the file
+	 * 			is larger than 2GB
+	 * @throws ClassCastException if the result is either not compatible to, or implicitly cast
+	 * 			to something different from either Object, Boolean, Number (Long or Double),
+	 * 			CharSequence, Map<String,Object>, or Object[]
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public <T> T parse (final Path jsonPath) throws NullPointerException, IllegalArgumentException, ClassCastException, IOException {
+		try (FileChannel fileChannel = FileChannel.open(jsonPath, StandardOpenOption.READ)) {
+			final ByteBuffer buffer = fileChannel.map(MapMode.READ_ONLY, 0, fileChannel.size());
+			return parse(buffer);
+		}
 	}
-}
\ No newline at end of file
+}
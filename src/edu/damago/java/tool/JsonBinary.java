@@ -0,0 +1,590 @@
+package edu.damago.java.tool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Facade providing a compact binary encoding of the JSON value model, meant for caches and
+ * inter-process communication where the text representation is not required. Each value
+ * starts with a tag byte; integers are encoded as zig-zag varints, with integers from 0 to 191
+ * embedded into their tag byte, doubles as 8 little-endian bytes, strings as varint-length
+ * prefixed UTF-8, and arrays and maps as varint-count prefixed sequences. Map keys are written
+ * once per message, and subsequently referenced by their index. Homogeneous numeric primitive
+ * arrays are encoded as packed arrays, and decoded into {@code long[]} or {@code double[]}.
+ * @author Sascha Baumeister
+ */
+public class JsonBinary {
+	static private final byte NULL = 0, FALSE = 1, TRUE = 2, INTEGER = 3, DOUBLE = 4, STRING = 5, ARRAY = 6, MAP = 7, LONG_ARRAY = 8, DOUBLE_ARRAY = 9;
+	static private final int SMALL_INTEGER = 0x40;
+	static private final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private JsonBinary () {}
+
+
+	/**
+	 * Returns the binary representation for the given object.
+	 * @param object the object, or {@code null}
+	 * @return the binary representation
+	 */
+	static public byte[] encode (final Object object) {
+		final Encoder encoder = new Encoder();
+		encoder.write(object);
+		return Arrays.copyOf(encoder.buffer, encoder.size);
+	}
+
+
+	/**
+	 * Writes the binary representation for the given object into the given sink.
+	 * @param object the object, or {@code null}
+	 * @param sink the output stream to write into
+	 * @throws NullPointerException if the given sink is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void encode (final Object object, final OutputStream sink) throws NullPointerException, IOException {
+		if (sink == null) throw new NullPointerException();
+
+		final Encoder encoder = new Encoder();
+		encoder.write(object);
+		sink.write(encoder.buffer, 0, encoder.size);
+	}
+
+
+	/**
+	 * Returns an object decoded from the given binary representation.
+	 * @param data the binary representation
+	 * @return the object, or null
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the argument is not a valid binary representation
+	 * @throws ClassCastException if the result is either not compatible to, or implicitly cast
+	 * 			to something different from either Object, Boolean, Number (Long or Double),
+	 * 			String, Map<String,Object>, Object[], long[], or double[]
+	 */
+	@SuppressWarnings("unchecked")
+	static public <T> T decode (final byte[] data) throws NullPointerException, IllegalArgumentException, ClassCastException {
+		return (T) decode(data, 0, data.length);
+	}
+
+
+	/**
+	 * Returns an object decoded from the given binary representation, consisting of the
+	 * remaining bytes of the given buffer. The buffer's position and limit are not modified.
+	 * @param data the binary representation
+	 * @return the object, or null
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the argument is not a valid binary representation
+	 * @throws ClassCastException if the result is either not compatible to, or implicitly cast
+	 * 			to something different from either Object, Boolean, Number (Long or Double),
+	 * 			String, Map<String,Object>, Object[], long[], or double[]
+	 */
+	@SuppressWarnings("unchecked")
+	static public <T> T decode (final ByteBuffer data) throws NullPointerException, IllegalArgumentException, ClassCastException {
+		if (data.hasArray()) return (T) decode(data.array(), data.arrayOffset() + data.position(), data.arrayOffset() + data.limit());
+
+		final byte[] bytes = new byte[data.remaining()];
+		data.get(data.position(), bytes);
+		return (T) decode(bytes, 0, bytes.length);
+	}
+
+
+	/**
+	 * Returns an object decoded from the given byte range.
+	 * @param data the binary representation
+	 * @param begin the begin position (inclusive)
+	 * @param end the end position (exclusive)
+	 * @return the object, or null
+	 * @throws IllegalArgumentException if the range is not a valid binary representation
+	 */
+	static private Object decode (final byte[] data, final int begin, final int end) throws IllegalArgumentException {
+		final Decoder decoder = new Decoder(data, begin, end);
+		try {
+			final Object result = decoder.read();
+			if (decoder.position != end) throw decoder.exception();
+			return result;
+		} catch (final ArrayIndexOutOfBoundsException e) {
+			throw decoder.exception();
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class encode values into a growable byte array.
+	 */
+	static private class Encoder {
+		private final Map<String,Integer> keyIndices = new HashMap<>();
+		private byte[] buffer = new byte[256];
+		private int size = 0;
+
+
+		/**
+		 * Writes the given object, including all of it's constituents. Objects that are not part of
+		 * the JSON value model are written as their string representation.
+		 * @param object the object, or {@code null}
+		 */
+		public void write (final Object object) {
+			if (object == null) {
+				this.writeByte(NULL);
+			} else if (object instanceof Boolean) {
+				this.writeByte((Boolean) object ? TRUE : FALSE);
+			} else if (object instanceof Long | object instanceof Integer | object instanceof Short | object instanceof Byte) {
+				this.writeInteger(((Number) object).longValue());
+			} else if (object instanceof JsonNumber) {
+				this.write(((JsonNumber) object).value());
+			} else if (object instanceof Number) {
+				this.writeDouble(((Number) object).doubleValue());
+			} else if (object instanceof CharSequence) {
+				this.writeByte(STRING);
+				this.writeString((CharSequence) object);
+			} else if (object instanceof Object[]) {
+				final Object[] elements = (Object[]) object;
+				this.writeByte(ARRAY);
+				this.writeVarint(elements.length);
+				for (final Object element : elements)
+					this.write(element);
+			} else if (object instanceof List) {
+				final List<?> elements = (List<?>) object;
+				this.writeByte(ARRAY);
+				this.writeVarint(elements.size());
+				for (final Object element : elements)
+					this.write(element);
+			} else if (object instanceof Map) {
+				final Map<?,?> map = (Map<?,?>) object;
+				this.writeByte(MAP);
+				this.writeVarint(map.size());
+				for (final Map.Entry<?,?> entry : map.entrySet()) {
+					this.writeKey(String.valueOf(entry.getKey()));
+					this.write(entry.getValue());
+				}
+			} else if (object.getClass().isArray()) {
+				this.writePrimitiveArray(object);
+			} else {
+				this.writeByte(STRING);
+				this.writeString(object.toString());
+			}
+		}
+
+
+		/**
+		 * Writes the given primitive array; numeric arrays are packed.
+		 * @param array the primitive array
+		 */
+		private void writePrimitiveArray (final Object array) {
+			if (array instanceof long[]) {
+				final long[] elements = (long[]) array;
+				this.writeByte(LONG_ARRAY);
+				this.writeVarint(elements.length);
+				for (final long element : elements) this.writeVarint(zigZag(element));
+			} else if (array instanceof int[]) {
+				final int[] elements = (int[]) array;
+				this.writeByte(LONG_ARRAY);
+				this.writeVarint(elements.length);
+				for (final int element : elements) this.writeVarint(zigZag(element));
+			} else if (array instanceof short[]) {
+				final short[] elements = (short[]) array;
+				this.writeByte(LONG_ARRAY);
+				this.writeVarint(elements.length);
+				for (final short element : elements) this.writeVarint(zigZag(element));
+			} else if (array instanceof byte[]) {
+				final byte[] elements = (byte[]) array;
+				this.writeByte(LONG_ARRAY);
+				this.writeVarint(elements.length);
+				for (final byte element : elements) this.writeVarint(zigZag(element));
+			} else if (array instanceof double[]) {
+				final double[] elements = (double[]) array;
+				this.writeByte(DOUBLE_ARRAY);
+				this.writeVarint(elements.length);
+				this.ensureCapacity(8 * elements.length);
+				for (final double element : elements) this.writeRawDouble(element);
+			} else if (array instanceof float[]) {
+				final float[] elements = (float[]) array;
+				this.writeByte(DOUBLE_ARRAY);
+				this.writeVarint(elements.length);
+				this.ensureCapacity(8 * elements.length);
+				for (final float element : elements) this.writeRawDouble(element);
+			} else if (array instanceof boolean[]) {
+				final boolean[] elements = (boolean[]) array;
+				this.writeByte(ARRAY);
+				this.writeVarint(elements.length);
+				for (final boolean element : elements) this.writeByte(element ? TRUE : FALSE);
+			} else {
+				this.writeByte(STRING);
+				this.writeString(new String((char[]) array));
+			}
+		}
+
+
+		/**
+		 * Writes the given map key, either as a reference to a previously written key, or
+		 * as a new key. Key references are encoded as odd varints, new keys as even ones.
+		 * @param key the key
+		 */
+		private void writeKey (final String key) {
+			final Integer index = this.keyIndices.get(key);
+			if (index != null) {
+				this.writeVarint(((long) index << 1) | 1);
+			} else {
+				this.keyIndices.put(key, this.keyIndices.size());
+				this.writeVarint((long) utf8Length(key) << 1);
+				this.writeUtf8(key);
+			}
+		}
+
+
+		/**
+		 * Writes the given integral value, embedding small values into the tag byte.
+		 * @param value the value
+		 */
+		private void writeInteger (final long value) {
+			if (value >= 0 & value < 0x100 - SMALL_INTEGER) {
+				this.writeByte((byte) (SMALL_INTEGER + value));
+			} else {
+				this.writeByte(INTEGER);
+				this.writeVarint(zigZag(value));
+			}
+		}
+
+
+		/**
+		 * Writes the given floating-point value.
+		 * @param value the value
+		 */
+		private void writeDouble (final double value) {
+			this.writeByte(DOUBLE);
+			this.ensureCapacity(8);
+			this.writeRawDouble(value);
+		}
+
+
+		/**
+		 * Writes the given floating-point value without a tag, assuming sufficient capacity.
+		 * @param value the value
+		 */
+		private void writeRawDouble (final double value) {
+			LONG_VIEW.set(this.buffer, this.size, Double.doubleToRawLongBits(value));
+			this.size += 8;
+		}
+
+
+		/**
+		 * Writes the given text as varint-length prefixed UTF-8.
+		 * @param text the text
+		 */
+		private void writeString (final CharSequence text) {
+			this.writeVarint(utf8Length(text));
+			this.writeUtf8(text);
+		}
+
+
+		/**
+		 * Writes the given text as UTF-8, without length prefix. Unpaired surrogates are written as question marks.
+		 * @param text the text
+		 */
+		private void writeUtf8 (final CharSequence text) {
+			final int length = text.length();
+			this.ensureCapacity(3 * length);
+
+			final byte[] buffer = this.buffer;
+			int size = this.size;
+			for (int index = 0; index < length; ++index) {
+				final char character = text.charAt(index);
+				if (character < 0x80) {
+					buffer[size++] = (byte) character;
+				} else if (character < 0x800) {
+					buffer[size++] = (byte) (0xC0 | character >> 6);
+					buffer[size++] = (byte) (0x80 | character & 0x3F);
+				} else if (Character.isHighSurrogate(character) && index + 1 < length && Character.isLowSurrogate(text.charAt(index + 1))) {
+					final int codePoint = Character.toCodePoint(character, text.charAt(++index));
+					buffer[size++] = (byte) (0xF0 | codePoint >> 18);
+					buffer[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+					buffer[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+					buffer[size++] = (byte) (0x80 | codePoint & 0x3F);
+				} else if (Character.isSurrogate(character)) {
+					buffer[size++] = '?';
+				} else {
+					buffer[size++] = (byte) (0xE0 | character >> 12);
+					buffer[size++] = (byte) (0x80 | character >> 6 & 0x3F);
+					buffer[size++] = (byte) (0x80 | character & 0x3F);
+				}
+			}
+			this.size = size;
+		}
+
+
+		/**
+		 * Writes the given value as an unsigned LEB128 varint.
+		 * @param value the value
+		 */
+		private void writeVarint (long value) {
+			this.ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.buffer[this.size++] = (byte) (value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			this.buffer[this.size++] = (byte) value;
+		}
+
+
+		/**
+		 * Writes the given byte.
+		 * @param value the byte
+		 */
+		private void writeByte (final byte value) {
+			this.ensureCapacity(1);
+			this.buffer[this.size++] = value;
+		}
+
+
+		/**
+		 * Ensures the buffer can accommodate the given number of additional bytes.
+		 * @param count the number of additional bytes
+		 */
+		private void ensureCapacity (final int count) {
+			if (this.size + count > this.buffer.length)
+				this.buffer = Arrays.copyOf(this.buffer, Math.max(2 * this.buffer.length, this.size + count));
+		}
+
+
+		/**
+		 * Returns the UTF-8 length of the given text. Unpaired surrogates are counted as one byte.
+		 * @param text the text
+		 * @return the number of UTF-8 bytes
+		 */
+		static private int utf8Length (final CharSequence text) {
+			final int length = text.length();
+
+			int result = length;
+			for (int index = 0; index < length; ++index) {
+				final char character = text.charAt(index);
+				if (character < 0x80) continue;
+				if (character < 0x800) {
+					result += 1;
+				} else if (Character.isHighSurrogate(character) && index + 1 < length && Character.isLowSurrogate(text.charAt(index + 1))) {
+					result += 2;
+					index += 1;
+				} else if (!Character.isSurrogate(character)) {
+					result += 2;
+				}
+			}
+
+			return result;
+		}
+
+
+		/**
+		 * Returns the zig-zag encoding of the given value, mapping small magnitudes to small unsigned values.
+		 * @param value the value
+		 * @return the zig-zag encoded value
+		 */
+		static private long zigZag (final long value) {
+			return value << 1 ^ value >> 63;
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class decode values from a byte range.
+	 */
+	static private class Decoder {
+		private final byte[] data;
+		private final int limit;
+		private final JsonShape shapes;
+		private final List<String> keys;
+		private int position;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param data the binary representation
+		 * @param begin the begin position (inclusive)
+		 * @param end the end position (exclusive)
+		 */
+		public Decoder (final byte[] data, final int begin, final int end) {
+			if (begin < 0 | end > data.length | begin > end) throw new IndexOutOfBoundsException();
+
+			this.data = data;
+			this.limit = end;
+			this.shapes = new JsonShape();
+			this.keys = new ArrayList<>();
+			this.position = begin;
+		}
+
+
+		/**
+		 * Reads the next value, including all of it's constituents.
+		 * @return the value, either {@code null}, or an instance of Boolean, Number (Long or Double),
+		 *         String, Map&lt;String,Object&gt;, Object[], long[], or double[]
+		 * @throws IllegalArgumentException if the data does not contain a valid value
+		 */
+		public Object read () throws IllegalArgumentException {
+			if (this.position >= this.limit) throw this.exception();
+
+			final int tag = this.data[this.position++] & 0xFF;
+			switch (tag) {
+				case NULL:
+					return null;
+				case FALSE:
+					return Boolean.FALSE;
+				case TRUE:
+					return Boolean.TRUE;
+				case INTEGER:
+					return unZigZag(this.readVarint());
+				case DOUBLE:
+					return this.readRawDouble();
+				case STRING:
+					return this.readString(this.readCount(1));
+				case ARRAY: {
+					final Object[] elements = new Object[this.readCount(1)];
+					for (int index = 0; index < elements.length; ++index)
+						elements[index] = this.read();
+					return elements;
+				}
+				case MAP: {
+					final int size = this.readCount(2);
+					final JsonShapedMap map = new JsonShapedMap(this.shapes);
+					for (int index = 0; index < size; ++index) {
+						final String key = this.readKey();
+						map.put(key, this.read());
+					}
+					return map.trim();
+				}
+				case LONG_ARRAY: {
+					final long[] elements = new long[this.readCount(1)];
+					for (int index = 0; index < elements.length; ++index)
+						elements[index] = unZigZag(this.readVarint());
+					return elements;
+				}
+				case DOUBLE_ARRAY: {
+					final double[] elements = new double[this.readCount(8)];
+					for (int index = 0; index < elements.length; ++index)
+						elements[index] = this.readRawDouble();
+					return elements;
+				}
+				default:
+					if (tag >= SMALL_INTEGER) return (long) (tag - SMALL_INTEGER);
+					throw this.exception(this.position - 1);
+			}
+		}
+
+
+		/**
+		 * Reads a map key, either a new one or a reference to a previously read one.
+		 * @return the key
+		 * @throws IllegalArgumentException if the data does not contain a valid key
+		 */
+		private String readKey () throws IllegalArgumentException {
+			final long header = this.readVarint();
+			if ((header & 1) == 1) {
+				if ((header >>> 1) >= this.keys.size()) throw this.exception();
+				return this.keys.get((int) (header >>> 1));
+			}
+
+			if ((header >>> 1) > this.limit - this.position) throw this.exception();
+			final String key = this.readString((int) (header >>> 1));
+			this.keys.add(key);
+			return key;
+		}
+
+
+		/**
+		 * Reads a UTF-8 string of the given length.
+		 * @param length the length in bytes
+		 * @return the string
+		 */
+		private String readString (final int length) {
+			final String result = new String(this.data, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return result;
+		}
+
+
+		/**
+		 * Reads 8 little-endian bytes as a floating-point value.
+		 * @return the value
+		 * @throws IllegalArgumentException if the data is truncated
+		 */
+		private double readRawDouble () throws IllegalArgumentException {
+			if (this.limit - this.position < 8) throw this.exception();
+
+			final double result = Double.longBitsToDouble((long) LONG_VIEW.get(this.data, this.position));
+			this.position += 8;
+			return result;
+		}
+
+
+		/**
+		 * Reads an element count, and verifies it against the remaining data.
+		 * @param minimumElementSize the minimum number of bytes per element
+		 * @return the count
+		 * @throws IllegalArgumentException if the count exceeds the remaining data
+		 */
+		private int readCount (final int minimumElementSize) throws IllegalArgumentException {
+			final long count = this.readVarint();
+			if (count < 0 || count > (this.limit - this.position) / minimumElementSize) throw this.exception();
+			return (int) count;
+		}
+
+
+		/**
+		 * Reads an unsigned LEB128 varint.
+		 * @return the value
+		 * @throws IllegalArgumentException if the varint is truncated or too long
+		 */
+		private long readVarint () throws IllegalArgumentException {
+			long result = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				if (this.position >= this.limit) throw this.exception();
+
+				final byte value = this.data[this.position++];
+				result |= (long) (value & 0x7F) << shift;
+				if (value >= 0) return result;
+			}
+
+			throw this.exception();
+		}
+
+
+		/**
+		 * Returns a new exception for the current position.
+		 * @return the exception created
+		 */
+		private IllegalArgumentException exception () {
+			return this.exception(this.position);
+		}
+
+
+		/**
+		 * Returns a new exception for the given position.
+		 * @param position the position
+		 * @return the exception created
+		 */
+		private IllegalArgumentException exception (final int position) {
+			return new IllegalArgumentException("invalid binary JSON at position " + position);
+		}
+
+
+		/**
+		 * Returns the value of the given zig-zag encoded value.
+		 * @param value the zig-zag encoded value
+		 * @return the value
+		 */
+		static private long unZigZag (final long value) {
+			return value >>> 1 ^ -(value & 1);
+		}
+	}
+}
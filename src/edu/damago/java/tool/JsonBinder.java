@@ -0,0 +1,361 @@
+package edu.damago.java.tool;
+
+import java.io.IOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+
+/**
+ * Instances of this class bind JSON representations directly to and from JavaBeans,
+ * without materializing intermediate maps. Each binder is generated once per bean class
+ * and cached; it's property accessors are spun via {@link LambdaMetafactory}, falling back
+ * to plain method handles if a bean class does not grant the required access.
+ * @param <T> the bean type
+ * @author Sascha Baumeister
+ */
+class JsonBinder<T> {
+	static private final ClassValue<JsonBinder<?>> BINDERS = new ClassValue<>() {
+		@Override
+		protected JsonBinder<?> computeValue (final Class<?> type) {
+			return new JsonBinder<>(type);
+		}
+	};
+
+	private final Class<T> type;
+	private final Supplier<T> constructor;
+	private final Map<String,Property> properties;
+
+
+	/**
+	 * Returns the binder for the given bean type, generating it on first request.
+	 * @param <T> the bean type
+	 * @param type the bean type
+	 * @return the binder
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	static public <T> JsonBinder<T> of (final Class<T> type) throws NullPointerException {
+		return (JsonBinder<T>) BINDERS.get(type);
+	}
+
+
+	/**
+	 * Initializes a new instance for the given type.
+	 * @param type the bean type
+	 */
+	private JsonBinder (final Class<T> type) {
+		this.type = type;
+		this.constructor = isBeanCandidate(type) ? newConstructor(type) : null;
+
+		final Map<String,Property> properties = new TreeMap<>();
+		if (this.constructor != null) {
+			for (final Method getter : type.getMethods()) {
+				if (getter.getParameterCount() != 0 | Modifier.isStatic(getter.getModifiers()) | getter.getDeclaringClass() == Object.class) continue;
+
+				final String name = getter.getName();
+				final int prefixLength = name.startsWith("get") ? 3 : (name.startsWith("is") & getter.getReturnType() == boolean.class ? 2 : 0);
+				if (prefixLength == 0 | name.length() == prefixLength) continue;
+
+				try {
+					final Method setter = type.getMethod("set" + name.substring(prefixLength), getter.getReturnType());
+					final String key = Character.toLowerCase(name.charAt(prefixLength)) + name.substring(prefixLength + 1);
+					properties.put(key, new Property(key, getter.getReturnType(), newGetter(type, getter), newSetter(type, setter)));
+				} catch (final NoSuchMethodException e) {
+					// read-only properties are not bound
+				}
+			}
+		}
+
+		this.properties = Collections.unmodifiableMap(properties);
+	}
+
+
+	/**
+	 * Returns whether or not this binder's type is a bean type,
+	 * i.e. whether or not it features bindable properties.
+	 * @return {@code true} if the type is a bean type, {@code false} otherwise
+	 */
+	public boolean isBean () {
+		return !this.properties.isEmpty();
+	}
+
+
+	/**
+	 * Reads a bean from the given reader, which must be positioned before a JSON map or a void value.
+	 * Map entries without a matching bean property are skipped.
+	 * @param reader the JSON reader
+	 * @return the bean created, or {@code null}
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the JSON is invalid, or does not match the bean type
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public T read (final JsonReader reader) throws NullPointerException, IllegalArgumentException, IOException {
+		if (reader.peek() == JsonReader.Token.NULL) {
+			reader.nextNull();
+			return null;
+		}
+
+		if (!this.isBean()) throw new IllegalArgumentException(this.type.getName() + " is not a bean type");
+		if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) throw new IllegalArgumentException("expected JSON map for " + this.type.getName() + " but was " + reader.peek());
+		final T bean = this.constructor.get();
+
+		reader.nextToken();
+		while (reader.hasNext()) {
+			final Property property = this.properties.get(reader.nextName());
+			if (property == null) {
+				reader.skipValue();
+			} else {
+				final Object value = readValue(reader, property.type);
+				if (value != null | !property.type.isPrimitive()) property.setter.accept(bean, value);
+			}
+		}
+		reader.nextToken();
+
+		return bean;
+	}
+
+
+	/**
+	 * Writes the given bean into the given writer, as a JSON map of it's properties.
+	 * @param writer the JSON writer
+	 * @param bean the bean, or {@code null}
+	 * @throws NullPointerException if the given writer is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public void write (final JsonWriter writer, final Object bean) throws NullPointerException, IOException {
+		if (bean == null) {
+			writer.nullValue();
+			return;
+		}
+
+		writer.beginObject();
+		for (final Property property : this.properties.values()) {
+			writer.name(property.name);
+			writer.write(property.getter.apply(bean));
+		}
+		writer.endObject();
+	}
+
+
+	/**
+	 * Reads a value of the given type from the given reader.
+	 * @param reader the JSON reader
+	 * @param type the value type
+	 * @return the value, or {@code null}
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the JSON is invalid, or does not match the given type
+	 * @throws IOException if there is an I/O related problem
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static public Object readValue (final JsonReader reader, final Class<?> type) throws NullPointerException, IllegalArgumentException, IOException {
+		final JsonReader.Token token = reader.peek();
+		if (token == JsonReader.Token.NULL) {
+			reader.nextNull();
+			return null;
+		}
+
+		try {
+			if (type == long.class | type == Long.class) return reader.nextLong();
+			if (type == int.class | type == Integer.class) return Math.toIntExact(reader.nextLong());
+			if (type == short.class | type == Short.class) return (short) narrow(reader.nextLong(), Short.MIN_VALUE, Short.MAX_VALUE);
+			if (type == byte.class | type == Byte.class) return (byte) narrow(reader.nextLong(), Byte.MIN_VALUE, Byte.MAX_VALUE);
+			if (type == double.class | type == Double.class) return reader.nextDouble();
+			if (type == float.class | type == Float.class) return (float) reader.nextDouble();
+			if (type == boolean.class | type == Boolean.class) return reader.nextBoolean();
+			if (type == char.class | type == Character.class) return reader.nextString().charAt(0);
+			if (type == String.class) return reader.nextString();
+			if (type.isEnum()) return Enum.valueOf((Class<Enum>) type, reader.nextString());
+		} catch (final IllegalStateException | ArithmeticException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("JSON " + token + " does not match " + type.getName(), e);
+		}
+
+		final JsonBinder<?> binder = of(type);
+		if (binder.isBean()) return binder.read(reader);
+
+		final Object value = reader.nextValue();
+		if (!type.isInstance(value)) throw new IllegalArgumentException("JSON " + token + " does not match " + type.getName());
+		return value;
+	}
+
+
+	/**
+	 * Returns the given value if it lies within the given range.
+	 * @param value the value
+	 * @param min the minimum value (inclusive)
+	 * @param max the maximum value (inclusive)
+	 * @return the value
+	 * @throws ArithmeticException if the value is out of range
+	 */
+	static private long narrow (final long value, final long min, final long max) throws ArithmeticException {
+		if (value < min | value > max) throw new ArithmeticException("value out of range: " + value);
+		return value;
+	}
+
+
+	/**
+	 * Returns whether or not the given type qualifies as a bean type candidate,
+	 * i.e. is a concrete, non-platform class with a public no-arg constructor.
+	 * @param type the type
+	 * @return {@code true} if the type is a candidate, {@code false} otherwise
+	 */
+	static private boolean isBeanCandidate (final Class<?> type) {
+		if (type.isPrimitive() | type.isArray() | type.isInterface() | type.isEnum() | Modifier.isAbstract(type.getModifiers()) | !Modifier.isPublic(type.getModifiers())) return false;
+		if (type.getName().startsWith("java.") | type.getName().startsWith("javax.")) return false;
+
+		try {
+			return Modifier.isPublic(type.getConstructor().getModifiers());
+		} catch (final NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Returns a lookup suitable for spinning lambdas within the given type's context.
+	 * @param type the type
+	 * @return the lookup
+	 * @throws IllegalAccessException if the type's module does not grant private access
+	 */
+	static private MethodHandles.Lookup lookup (final Class<?> type) throws IllegalAccessException {
+		return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+	}
+
+
+	/**
+	 * Returns a new constructor function for the given type.
+	 * @param <T> the bean type
+	 * @param type the bean type
+	 * @return the constructor function, or {@code null} if the type cannot be accessed
+	 */
+	@SuppressWarnings("unchecked")
+	static private <T> Supplier<T> newConstructor (final Class<T> type) {
+		try {
+			final MethodHandles.Lookup lookup = lookup(type);
+			final MethodHandle handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+			try {
+				final CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class), MethodType.methodType(Object.class), handle, MethodType.methodType(type));
+				return (Supplier<T>) site.getTarget().invoke();
+			} catch (final Throwable e) {
+				return () -> (T) invoke(handle);
+			}
+		} catch (final ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Returns a new getter function for the given accessor method.
+	 * @param type the bean type
+	 * @param method the accessor method
+	 * @return the getter function
+	 * @throws IllegalArgumentException if the method cannot be accessed
+	 */
+	@SuppressWarnings("unchecked")
+	static private Function<Object,Object> newGetter (final Class<?> type, final Method method) throws IllegalArgumentException {
+		try {
+			final MethodHandles.Lookup lookup = lookup(type);
+			final MethodHandle handle = lookup.unreflect(method);
+			try {
+				final MethodType instantiatedType = MethodType.methodType(box(method.getReturnType()), type);
+				final CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class), handle, instantiatedType);
+				return (Function<Object,Object>) site.getTarget().invoke();
+			} catch (final Throwable e) {
+				return bean -> invoke(handle, bean);
+			}
+		} catch (final IllegalAccessException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+
+	/**
+	 * Returns a new setter function for the given mutator method.
+	 * @param type the bean type
+	 * @param method the mutator method
+	 * @return the setter function
+	 * @throws IllegalArgumentException if the method cannot be accessed
+	 */
+	@SuppressWarnings("unchecked")
+	static private BiConsumer<Object,Object> newSetter (final Class<?> type, final Method method) throws IllegalArgumentException {
+		try {
+			final MethodHandles.Lookup lookup = lookup(type);
+			final MethodHandle handle = lookup.unreflect(method);
+			try {
+				final MethodType instantiatedType = MethodType.methodType(void.class, type, box(method.getParameterTypes()[0]));
+				final CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class), MethodType.methodType(void.class, Object.class, Object.class), handle, instantiatedType);
+				return (BiConsumer<Object,Object>) site.getTarget().invoke();
+			} catch (final Throwable e) {
+				return (bean, value) -> invoke(handle, bean, value);
+			}
+		} catch (final IllegalAccessException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+
+	/**
+	 * Invokes the given method handle with the given arguments.
+	 * @param handle the method handle
+	 * @param arguments the arguments as a var-arg array
+	 * @return the result, or {@code null} for none
+	 * @throws IllegalArgumentException if the invocation fails
+	 */
+	static private Object invoke (final MethodHandle handle, final Object... arguments) throws IllegalArgumentException {
+		try {
+			return handle.invokeWithArguments(arguments);
+		} catch (final RuntimeException | Error e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+
+	/**
+	 * Returns the wrapper type for the given type.
+	 * @param type the type
+	 * @return the wrapper type if the given type is primitive, otherwise the type itself
+	 */
+	static private Class<?> box (final Class<?> type) {
+		return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+	}
+
+
+
+	/**
+	 * Instances of this class represent bound bean properties.
+	 */
+	static private class Property {
+		private final String name;
+		private final Class<?> type;
+		private final Function<Object,Object> getter;
+		private final BiConsumer<Object,Object> setter;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param name the property name
+		 * @param type the property type
+		 * @param getter the getter function
+		 * @param setter the setter function
+		 */
+		public Property (final String name, final Class<?> type, final Function<Object,Object> getter, final BiConsumer<Object,Object> setter) {
+			this.name = name;
+			this.type = type;
+			this.getter = getter;
+			this.setter = setter;
+		}
+	}
+}
@@ -0,0 +1,417 @@
+package edu.damago.java.tool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Instances of this class parse UTF-8 encoded JSON representations directly from a byte buffer,
+ * including memory-mapped files, without decoding the whole input into characters first.
+ * Map keys are decoded eagerly, while string values are returned as character sequences that
+ * are only decoded once they are accessed, and maps are returned as compact array-backed maps
+ * sharing their keys. Note that the buffer must not be modified while any of these character
+ * sequences is still in use, and that instances are not thread-safe.
+ * @author Sascha Baumeister
+ */
+class JsonByteParser {
+	private final ByteBuffer buffer;
+	private final int limit;
+	private final JsonShape shapes;
+	private final boolean lazyNumbers;
+	private final boolean primitiveArrays;
+	private final StringBuilder literal;
+	private int position;
+
+
+	/**
+	 * Initializes a new instance for the remaining content of the given byte buffer.
+	 * The buffer's position and limit are not modified.
+	 * @param buffer the UTF-8 encoded JSON representation
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonByteParser (final ByteBuffer buffer) throws NullPointerException {
+		this(buffer, new JsonShape(), EnumSet.noneOf(JSON.ParseOption.class));
+	}
+
+
+	/**
+	 * Initializes a new instance for the remaining content of the given byte buffer. Maps parsed
+	 * share their key shapes with any other maps using the same shape tree. The buffer's position
+	 * and limit are not modified.
+	 * @param buffer the UTF-8 encoded JSON representation
+	 * @param shapes the shape tree to use for parsed maps
+	 * @param options the parse options
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	public JsonByteParser (final ByteBuffer buffer, final JsonShape shapes, final Set<JSON.ParseOption> options) throws NullPointerException {
+		this.shapes = shapes.root();
+		this.lazyNumbers = options.contains(JSON.ParseOption.LAZY_NUMBERS);
+		this.primitiveArrays = options.contains(JSON.ParseOption.PRIMITIVE_ARRAYS);
+		this.literal = new StringBuilder();
+		this.buffer = buffer;
+		this.limit = buffer.limit();
+		this.position = buffer.position();
+
+		// skip UTF-8 byte order mark
+		if (this.limit - this.position >= 3 && buffer.get(this.position) == (byte) 0xEF && buffer.get(this.position + 1) == (byte) 0xBB && buffer.get(this.position + 2) == (byte) 0xBF)
+			this.position += 3;
+	}
+
+
+	/**
+	 * Parses the complete buffer content as a single JSON value, surrounded by optional whitespace.
+	 * @return the value, either {@code null}, or an instance of Boolean, Number (Long or Double),
+	 *         CharSequence, Map&lt;String,Object&gt;, or Object[]
+	 * @throws IllegalArgumentException if the content does not represent a single valid JSON value
+	 */
+	@SuppressWarnings("unchecked")
+	public Object parse () throws IllegalArgumentException {
+		final Deque<Object> containers = new ArrayDeque<>();
+		final Deque<String> keys = new ArrayDeque<>();
+
+		while (true) {
+			Object value;
+			switch (this.nextNonWhitespace()) {
+				case '[':
+					this.position += 1;
+					if (this.nextNonWhitespace() == ']') {
+						this.position += 1;
+						value = new Object[0];
+						break;
+					}
+					if (this.primitiveArrays) {
+						final JsonNumericArray numericArray = JsonNumericArray.scan(new Latin1Sequence(this.buffer), this.position, this.limit);
+						if (numericArray != null) {
+							this.position = numericArray.end();
+							value = numericArray.toArray();
+							break;
+						}
+					}
+					containers.push(new ArrayList<>());
+					continue;
+				case '{':
+					this.position += 1;
+					if (this.nextNonWhitespace() == '}') {
+						this.position += 1;
+						value = new JsonShapedMap(this.shapes);
+						break;
+					}
+					containers.push(new JsonShapedMap(this.shapes));
+					keys.push(this.parseKey());
+					continue;
+				case '"': case '\'':
+					value = this.parseString();
+					break;
+				default:
+					value = this.parseLiteral();
+					break;
+			}
+
+			// attach the completed value to it's enclosing containers, closing these as required
+			while (true) {
+				if (containers.isEmpty()) {
+					this.skipWhitespace();
+					if (this.position < this.limit) throw this.exception();
+					return value;
+				}
+				final Object container = containers.peek();
+
+				if (container instanceof List) {
+					final List<Object> list = (List<Object>) container;
+					list.add(value);
+
+					final byte delimiter = this.nextNonWhitespace();
+					this.position += 1;
+					if (delimiter == ',' && this.nextNonWhitespace() != ']') break;
+					if (delimiter == ',') this.position += 1;
+					else if (delimiter != ']') throw this.exception(this.position - 1);
+
+					containers.pop();
+					value = list.toArray();
+				} else {
+					final JsonShapedMap map = (JsonShapedMap) container;
+					map.put(keys.pop(), value);
+
+					final byte delimiter = this.nextNonWhitespace();
+					this.position += 1;
+					if (delimiter == ',' && this.nextNonWhitespace() != '}') {
+						keys.push(this.parseKey());
+						break;
+					}
+					if (delimiter == ',') this.position += 1;
+					else if (delimiter != '}') throw this.exception(this.position - 1);
+
+					containers.pop();
+					value = map.trim();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Parses a map key starting at the current cursor position, including the subsequent colon.
+	 * @return the key
+	 * @throws IllegalArgumentException if the content does not contain a valid key
+	 */
+	private String parseKey () throws IllegalArgumentException {
+		final byte delimiter = this.nextNonWhitespace();
+		if (delimiter != '"' & delimiter != '\'') throw this.exception();
+
+		final String key = this.parseString().toString();
+		if (this.nextNonWhitespace() != ':') throw this.exception();
+		this.position += 1;
+		return key;
+	}
+
+
+	/**
+	 * Parses a string starting at the current cursor position, which must contain either a double
+	 * or a single quote. Note that UTF-8 multi-byte sequences never contain ASCII bytes, which allows
+	 * scanning for the closing quote without decoding.
+	 * @return the lazily decoded string
+	 * @throws IllegalArgumentException if the content does not contain a valid string
+	 */
+	private Utf8Sequence parseString () throws IllegalArgumentException {
+		final byte delimiter = this.buffer.get(this.position);
+		final int begin = this.position + 1;
+
+		boolean escaped = false;
+		for (int index = begin; index < this.limit; ++index) {
+			final byte character = this.buffer.get(index);
+			if (character == '\\') {
+				escaped = true;
+				index += 1;
+			} else if (character == delimiter) {
+				this.position = index + 1;
+				return new Utf8Sequence(this.buffer, begin, index - begin, escaped);
+			}
+		}
+
+		throw this.exception(begin - 1);
+	}
+
+
+	/**
+	 * Parses an unquoted literal starting at the current cursor position, i.e.
+	 * a number, a boolean, or a void value.
+	 * @return the literal value, either {@code null}, or an instance of Boolean or Number (Long or Double)
+	 * @throws IllegalArgumentException if the content does not contain a valid literal
+	 */
+	private Object parseLiteral () throws IllegalArgumentException {
+		final int begin = this.position;
+		while (this.position < this.limit && !isDelimiter(this.buffer.get(this.position))) this.position += 1;
+		if (this.position == begin) throw this.exception();
+
+		final StringBuilder literal = this.literal;
+		literal.setLength(0);
+		for (int index = begin; index < this.position; ++index)
+			literal.append((char) (this.buffer.get(index) & 0xFF));
+
+		try {
+			return JsonParser.literal(literal, 0, literal.length(), this.lazyNumbers);
+		} catch (final IllegalArgumentException e) {
+			throw this.exception(begin);
+		}
+	}
+
+
+	/**
+	 * Advances the cursor to the next non-whitespace byte, and returns it without consuming it.
+	 * @return the byte at the cursor position
+	 * @throws IllegalArgumentException if the end of the content has been reached
+	 */
+	private byte nextNonWhitespace () throws IllegalArgumentException {
+		this.skipWhitespace();
+		if (this.position >= this.limit) throw this.exception();
+		return this.buffer.get(this.position);
+	}
+
+
+	/**
+	 * Advances the cursor beyond any whitespace.
+	 */
+	private void skipWhitespace () {
+		while (this.position < this.limit && isWhitespace(this.buffer.get(this.position))) this.position += 1;
+	}
+
+
+	/**
+	 * Returns a new exception for the current cursor position.
+	 * @return the exception created
+	 */
+	private IllegalArgumentException exception () {
+		return this.exception(this.position);
+	}
+
+
+	/**
+	 * Returns a new exception for the given position.
+	 * @param position the position
+	 * @return the exception created
+	 */
+	private IllegalArgumentException exception (final int position) {
+		return new IllegalArgumentException("invalid JSON at byte position " + position);
+	}
+
+
+	/**
+	 * Returns whether or not the given byte represents ASCII whitespace,
+	 * as defined by {@link Character#isWhitespace(char)}.
+	 * @param character the byte
+	 * @return {@code true} if the byte is whitespace, {@code false} otherwise
+	 */
+	static private boolean isWhitespace (final byte character) {
+		return character == ' ' | (character >= 0x09 & character <= 0x0D) | (character >= 0x1C & character <= 0x1F);
+	}
+
+
+	/**
+	 * Returns whether or not the given byte terminates an unquoted literal.
+	 * @param character the byte
+	 * @return {@code true} if the byte is a delimiter, {@code false} otherwise
+	 */
+	static private boolean isDelimiter (final byte character) {
+		return character == ',' | character == ':' | character == ']' | character == '}' | character == '[' | character == '{' | isWhitespace(character);
+	}
+
+
+
+	/**
+	 * Instances of this class represent string values that are decoded from their UTF-8
+	 * representation on first content access only. Like other character sequences except
+	 * Strings, instances inherit identity-based equality; their content is compared via
+	 * {@link String#contentEquals(CharSequence)} or {@link #toString()} instead, which keeps
+	 * equality symmetric and hash-based collections consistent.
+	 */
+	static private class Utf8Sequence implements CharSequence {
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int length;
+		private final boolean escaped;
+		private String text;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param buffer the underlying buffer
+		 * @param offset the offset of the string content within the buffer
+		 * @param length the length of the string content in bytes
+		 * @param escaped whether or not the content contains escape sequences
+		 */
+		public Utf8Sequence (final ByteBuffer buffer, final int offset, final int length, final boolean escaped) {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.length = length;
+			this.escaped = escaped;
+		}
+
+
+		/**
+		 * {@inheritDoc} Unless the content contains escape sequences, the length
+		 * is derived from the UTF-8 lead bytes without decoding the content.
+		 */
+		@Override
+		public int length () {
+			if (this.text != null | this.escaped) return this.toString().length();
+
+			int length = 0;
+			for (int position = this.offset, limit = this.offset + this.length; position < limit; ++position) {
+				final int character = this.buffer.get(position) & 0xFF;
+				if ((character & 0xC0) != 0x80) length += character >= 0xF0 ? 2 : 1;
+			}
+			return length;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public char charAt (final int index) {
+			return this.toString().charAt(index);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public CharSequence subSequence (final int begin, final int end) {
+			return this.toString().subSequence(begin, end);
+		}
+
+
+		/**
+		 * Returns the decoded string, decoding it on first access.
+		 * @return the decoded string
+		 */
+		@Override
+		public String toString () {
+			if (this.text == null) {
+				final byte[] bytes = new byte[this.length];
+				this.buffer.get(this.offset, bytes);
+
+				final String text = new String(bytes, StandardCharsets.UTF_8);
+				this.text = this.escaped ? JsonEscapes.unescape(text, 0, text.length()) : text;
+			}
+
+			return this.text;
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class represent views of byte buffers as character sequences, mapping
+	 * each byte to the character of the same ISO-8859-1 code point. This is sufficient for
+	 * scanning ASCII content like numbers, without decoding.
+	 */
+	static private class Latin1Sequence implements CharSequence {
+		private final ByteBuffer buffer;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param buffer the underlying buffer
+		 */
+		public Latin1Sequence (final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int length () {
+			return this.buffer.limit();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public char charAt (final int index) {
+			return (char) (this.buffer.get(index) & 0xFF);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public CharSequence subSequence (final int begin, final int end) {
+			final byte[] bytes = new byte[end - begin];
+			this.buffer.get(begin, bytes);
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+}
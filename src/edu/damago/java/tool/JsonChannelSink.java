@@ -0,0 +1,191 @@
+package edu.damago.java.tool;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+
+/**
+ * Instances of this class represent appendables which encode the characters appended directly
+ * into UTF-8 bytes within a reusable byte buffer, and drain the buffer into a byte channel
+ * whenever it is full, or when being flushed. In combination with a {@link JsonWriter}, this
+ * allows JSON to be written into socket or file channels without intermediate strings, character
+ * buffers, or encoder copies. Unpaired surrogates are encoded as question marks. Note that the
+ * channel must be in blocking mode, and that instances are not thread-safe.
+ * @author Sascha Baumeister
+ */
+public class JsonChannelSink implements Appendable, Flushable, Closeable {
+	static private final int BUFFER_SIZE = 0x10000;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private char highSurrogate;
+
+
+	/**
+	 * Initializes a new instance based on the given channel, using a new direct buffer.
+	 * @param channel the channel to write into
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonChannelSink (final WritableByteChannel channel) throws NullPointerException {
+		this(channel, ByteBuffer.allocateDirect(BUFFER_SIZE));
+	}
+
+
+	/**
+	 * Initializes a new instance based on the given channel and buffer. The buffer may be
+	 * a heap or a direct buffer, and is cleared before use; it may be reused once this
+	 * instance has been flushed and is no longer used.
+	 * @param channel the channel to write into
+	 * @param buffer the buffer to encode into, with a capacity of at least 4 bytes
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the given buffer is read-only, or smaller than 4 bytes
+	 */
+	public JsonChannelSink (final WritableByteChannel channel, final ByteBuffer buffer) throws NullPointerException, IllegalArgumentException {
+		if (channel == null) throw new NullPointerException();
+		if (buffer.isReadOnly() | buffer.capacity() < 4) throw new IllegalArgumentException();
+
+		this.channel = channel;
+		this.buffer = buffer.clear();
+	}
+
+
+	/**
+	 * Returns the underlying channel.
+	 * @return the channel written into
+	 */
+	public WritableByteChannel getChannel () {
+		return this.channel;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonChannelSink append (final char character) throws IOException {
+		if (this.buffer.remaining() < 4) this.drain();
+		this.encode(character);
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonChannelSink append (final CharSequence text) throws IOException {
+		final CharSequence sequence = text == null ? "null" : text;
+		return this.append(sequence, 0, sequence.length());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonChannelSink append (final CharSequence text, final int begin, final int end) throws IndexOutOfBoundsException, IOException {
+		final CharSequence sequence = text == null ? "null" : text;
+		if (begin < 0 | end > sequence.length() | begin > end) throw new IndexOutOfBoundsException();
+
+		final ByteBuffer buffer = this.buffer;
+		for (int index = begin; index < end; ) {
+			if (buffer.remaining() < 4) this.drain();
+
+			// ASCII fast path, writing up to the buffer's remaining capacity without bounds checks per character
+			int position = buffer.position();
+			final int limit = position + Math.min(end - index, buffer.remaining() - 3);
+			if (this.highSurrogate == 0) {
+				for (char character; position < limit && (character = sequence.charAt(index)) < 0x80; ++index)
+					buffer.put(position++, (byte) character);
+				buffer.position(position);
+			}
+
+			if (index < end && buffer.remaining() >= 4) this.encode(sequence.charAt(index++));
+		}
+
+		return this;
+	}
+
+
+	/**
+	 * Writes all buffered bytes into the channel. A pending high surrogate remains buffered.
+	 * @throws IOException if there is an I/O related problem
+	 */
+	@Override
+	public void flush () throws IOException {
+		this.drain();
+	}
+
+
+	/**
+	 * Flushes this sink, and closes the underlying channel.
+	 * @throws IOException if there is an I/O related problem
+	 */
+	@Override
+	public void close () throws IOException {
+		try {
+			if (this.highSurrogate != 0) {
+				this.highSurrogate = 0;
+				this.append('?');
+			}
+			this.flush();
+		} finally {
+			this.channel.close();
+		}
+	}
+
+
+	/**
+	 * Encodes the given character into the buffer, which must have at least 4 bytes remaining.
+	 * High surrogates are retained until their low surrogate is encoded.
+	 * @param character the character
+	 */
+	private void encode (final char character) {
+		final ByteBuffer buffer = this.buffer;
+		if (this.highSurrogate != 0) {
+			final char highSurrogate = this.highSurrogate;
+			this.highSurrogate = 0;
+
+			if (Character.isLowSurrogate(character)) {
+				final int codePoint = Character.toCodePoint(highSurrogate, character);
+				buffer.put((byte) (0xF0 | codePoint >> 18));
+				buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint & 0x3F));
+				return;
+			}
+
+			buffer.put((byte) '?');
+		}
+
+		if (character < 0x80) {
+			buffer.put((byte) character);
+		} else if (character < 0x800) {
+			buffer.put((byte) (0xC0 | character >> 6));
+			buffer.put((byte) (0x80 | character & 0x3F));
+		} else if (Character.isHighSurrogate(character)) {
+			this.highSurrogate = character;
+		} else if (Character.isLowSurrogate(character)) {
+			buffer.put((byte) '?');
+		} else {
+			buffer.put((byte) (0xE0 | character >> 12));
+			buffer.put((byte) (0x80 | character >> 6 & 0x3F));
+			buffer.put((byte) (0x80 | character & 0x3F));
+		}
+	}
+
+
+	/**
+	 * Writes all buffered bytes into the channel, and clears the buffer.
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void drain () throws IOException {
+		this.buffer.flip();
+		while (this.buffer.hasRemaining())
+			this.channel.write(this.buffer);
+		this.buffer.clear();
+	}
+}
@@ -0,0 +1,464 @@
+package edu.damago.java.tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Instances of this class represent JSON documents that are navigated on demand. On creation,
+ * a compact structural index (a "tape") of the document is built in a single pass, recording
+ * each value's type, text range, and the tape position of it's next sibling; no values are
+ * materialized at this point. Navigating by key or index walks the tape instead of the text,
+ * and values are only materialized once they are requested, and then cached. Note that
+ * instances are not thread-safe, and that materialized maps and arrays are shared between
+ * requests, and should therefore not be modified.
+ * @author Sascha Baumeister
+ */
+public class JsonDocument {
+	static public enum Type { OBJECT, ARRAY, STRING, NUMBER, BOOLEAN, NULL }
+
+	static private final Type[] TYPES = Type.values();
+	static private final Object NULL = new Object();
+
+	private final CharSequence text;
+	private final JsonShape shapes;
+	private byte[] types;
+	private int[] begins;
+	private int[] ends;
+	private int[] nexts;
+	private int size;
+	private Object[] values;
+	private final Map<Integer,int[]> elementIndices;
+
+
+	/**
+	 * Initializes a new instance by indexing the given JSON representation.
+	 * @param text the JSON representation
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given text is not structurally valid JSON
+	 */
+	public JsonDocument (final CharSequence text) throws NullPointerException, IllegalArgumentException {
+		this.text = text;
+		this.shapes = new JsonShape();
+		this.types = new byte[16];
+		this.begins = new int[16];
+		this.ends = new int[16];
+		this.nexts = new int[16];
+		this.elementIndices = new HashMap<>();
+
+		this.index();
+		this.values = new Object[this.size];
+	}
+
+
+	/**
+	 * Returns the root node.
+	 * @return the root node
+	 */
+	public Node root () {
+		return new Node(0);
+	}
+
+
+	/**
+	 * Returns the value at the given path, materializing it if necessary.
+	 * @param path the path as a var-arg array of String keys and/or Integer indices
+	 * @return the value, or {@code null} if the value is void or the path does not exist
+	 * @throws NullPointerException if the given path or any of it's elements is {@code null}
+	 * @throws IllegalArgumentException if any path element is neither a String nor an Integer
+	 */
+	public Object get (final Object... path) throws NullPointerException, IllegalArgumentException {
+		final Node node = this.root().find(path);
+		return node == null ? null : node.value();
+	}
+
+
+	/**
+	 * Returns the number of tape entries, i.e. the number of values and keys within this document.
+	 * @return the tape size
+	 */
+	public int tapeSize () {
+		return this.size;
+	}
+
+
+	/**
+	 * Builds the structural index in a single pass over the text.
+	 * @throws IllegalArgumentException if the text is not structurally valid JSON
+	 */
+	private void index () throws IllegalArgumentException {
+		final int limit = this.text.length();
+		int[] containers = new int[16];
+		int depth = 0;
+
+		int position = this.skipWhitespace(0);
+		while (true) {
+			if (position >= limit) throw exception(position);
+
+			// index the value starting at the current position
+			final char character = this.text.charAt(position);
+			if (character == '[' | character == '{') {
+				if (depth == containers.length) containers = Arrays.copyOf(containers, 2 * depth);
+				containers[depth++] = this.add(character == '[' ? Type.ARRAY : Type.OBJECT, position, -1);
+				position = this.skipWhitespace(position + 1);
+
+				if (position < limit && this.text.charAt(position) != (character == '[' ? ']' : '}')) {
+					if (character == '{') position = this.indexKey(position);
+					continue;
+				}
+			} else if (character == '"' | character == '\'') {
+				final int end = this.scanString(position);
+				this.add(Type.STRING, position, end);
+				position = end;
+			} else {
+				int end = position;
+				while (end < limit && !isDelimiter(this.text.charAt(end))) end += 1;
+				if (end == position) throw exception(position);
+
+				this.add(character == 't' | character == 'f' ? Type.BOOLEAN : (character == 'n' | character == 'u' ? Type.NULL : Type.NUMBER), position, end);
+				position = end;
+			}
+
+			// close any completed containers
+			while (true) {
+				position = this.skipWhitespace(position);
+				if (depth == 0) {
+					if (position < limit) throw exception(position);
+					return;
+				}
+
+				final int container = containers[depth - 1];
+				final char closer = this.types[container] == Type.ARRAY.ordinal() ? ']' : '}';
+				if (position >= limit) throw exception(position);
+
+				if (this.text.charAt(position) == ',') {
+					position = this.skipWhitespace(position + 1);
+					if (position >= limit || this.text.charAt(position) != closer) {
+						if (closer == '}') position = this.indexKey(position);
+						break;
+					}
+				}
+
+				if (this.text.charAt(position) != closer) throw exception(position);
+				this.ends[container] = position + 1;
+				this.nexts[container] = this.size;
+				depth -= 1;
+				position += 1;
+			}
+		}
+	}
+
+
+	/**
+	 * Indexes the map key at the given position, including the subsequent colon.
+	 * @param position the key position
+	 * @return the position of the associated value
+	 * @throws IllegalArgumentException if the text does not contain a valid key
+	 */
+	private int indexKey (final int position) throws IllegalArgumentException {
+		if (position >= this.text.length() || (this.text.charAt(position) != '"' & this.text.charAt(position) != '\'')) throw exception(position);
+
+		final int end = this.scanString(position);
+		this.add(Type.STRING, position, end);
+
+		final int colonPosition = this.skipWhitespace(end);
+		if (colonPosition >= this.text.length() || this.text.charAt(colonPosition) != ':') throw exception(colonPosition);
+		return this.skipWhitespace(colonPosition + 1);
+	}
+
+
+	/**
+	 * Returns the end position of the quoted string starting at the given position.
+	 * @param position the opening quote position
+	 * @return the position after the closing quote
+	 * @throws IllegalArgumentException if the string is not terminated
+	 */
+	private int scanString (final int position) throws IllegalArgumentException {
+		final char delimiter = this.text.charAt(position);
+		for (int index = position + 1; index < this.text.length(); ++index) {
+			final char character = this.text.charAt(index);
+			if (character == '\\') index += 1;
+			else if (character == delimiter) return index + 1;
+		}
+
+		throw exception(position);
+	}
+
+
+	/**
+	 * Appends a tape entry.
+	 * @param type the value type
+	 * @param begin the text begin position (inclusive)
+	 * @param end the text end position (exclusive), or {@code -1} if not yet known
+	 * @return the tape index of the entry
+	 */
+	private int add (final Type type, final int begin, final int end) {
+		if (this.size == this.types.length) {
+			final int capacity = 2 * this.size;
+			this.types = Arrays.copyOf(this.types, capacity);
+			this.begins = Arrays.copyOf(this.begins, capacity);
+			this.ends = Arrays.copyOf(this.ends, capacity);
+			this.nexts = Arrays.copyOf(this.nexts, capacity);
+		}
+
+		final int index = this.size++;
+		this.types[index] = (byte) type.ordinal();
+		this.begins[index] = begin;
+		this.ends[index] = end;
+		this.nexts[index] = index + 1;
+		return index;
+	}
+
+
+	/**
+	 * Returns the position of the next non-whitespace character at or after the given position.
+	 * @param position the position
+	 * @return the next non-whitespace position, or the text length
+	 */
+	private int skipWhitespace (int position) {
+		while (position < this.text.length() && Character.isWhitespace(this.text.charAt(position))) position += 1;
+		return position;
+	}
+
+
+	/**
+	 * Returns the value of the tape entry at the given index, materializing and caching it if necessary.
+	 * As a container's subtree occupies the tape entries up to it's next sibling, the subtree is
+	 * materialized bottom-up in reverse tape order, which completes all children before their
+	 * container without recursion, regardless of the nesting depth.
+	 * @param index the tape index
+	 * @return the value, either {@code null}, or an instance of Boolean, Number (Long or Double),
+	 *         String, Map&lt;String,Object&gt;, or Object[]
+	 * @throws IllegalArgumentException if the value's text is invalid
+	 */
+	private Object materialize (final int index) throws IllegalArgumentException {
+		if (this.values[index] == null) {
+			for (int entry = this.nexts[index] - 1; entry >= index; --entry) {
+				if (this.values[entry] != null) continue;
+
+				final Object value = this.materializeEntry(entry);
+				this.values[entry] = value == null ? NULL : value;
+			}
+		}
+
+		final Object cached = this.values[index];
+		return cached == NULL ? null : cached;
+	}
+
+
+	/**
+	 * Returns the value of the tape entry at the given index, whose children must already be materialized.
+	 * @param index the tape index
+	 * @return the value, either {@code null}, or an instance of Boolean, Number (Long or Double),
+	 *         String, Map&lt;String,Object&gt;, or Object[]
+	 * @throws IllegalArgumentException if the value's text is invalid
+	 */
+	private Object materializeEntry (final int index) throws IllegalArgumentException {
+		final Object value;
+		switch (TYPES[this.types[index]]) {
+			case ARRAY: {
+				final List<Object> elements = new ArrayList<>();
+				for (int child = index + 1; child < this.nexts[index]; child = this.nexts[child])
+					elements.add(this.materialize(child));
+				value = elements.toArray();
+				break;
+			}
+			case OBJECT: {
+				final JsonShapedMap map = new JsonShapedMap(this.shapes);
+				for (int child = index + 1; child < this.nexts[index]; child = this.nexts[child + 1])
+					map.put((String) this.materialize(child), this.materialize(child + 1));
+				value = map.trim();
+				break;
+			}
+			case STRING:
+				value = JsonEscapes.unescape(this.text, this.begins[index] + 1, this.ends[index] - 1);
+				break;
+			default:
+				try {
+					value = JsonParser.literal(this.text, this.begins[index], this.ends[index], false);
+				} catch (final IllegalArgumentException e) {
+					throw exception(this.begins[index]);
+				}
+				break;
+		}
+
+		return value;
+	}
+
+
+	/**
+	 * Returns the tape indices of the elements of the array at the given tape index, caching them.
+	 * @param index the array's tape index
+	 * @return the element tape indices
+	 */
+	private int[] elementIndices (final int index) {
+		int[] elementIndices = this.elementIndices.get(index);
+		if (elementIndices == null) {
+			int count = 0;
+			for (int child = index + 1; child < this.nexts[index]; child = this.nexts[child]) count += 1;
+
+			elementIndices = new int[count];
+			for (int child = index + 1, position = 0; child < this.nexts[index]; child = this.nexts[child])
+				elementIndices[position++] = child;
+			this.elementIndices.put(index, elementIndices);
+		}
+
+		return elementIndices;
+	}
+
+
+	/**
+	 * Returns a new exception for the given position.
+	 * @param position the position
+	 * @return the exception created
+	 */
+	static private IllegalArgumentException exception (final int position) {
+		return new IllegalArgumentException("invalid JSON at position " + position);
+	}
+
+
+	/**
+	 * Returns whether or not the given character terminates an unquoted literal.
+	 * @param character the character
+	 * @return {@code true} if the character is a delimiter, {@code false} otherwise
+	 */
+	static private boolean isDelimiter (final char character) {
+		return character == ',' | character == ':' | character == ']' | character == '}' | character == '[' | character == '{' | Character.isWhitespace(character);
+	}
+
+
+
+	/**
+	 * Instances of this class represent positions within the document's structural index.
+	 * Nodes are lightweight, and may be created and discarded freely.
+	 */
+	public class Node {
+		private final int index;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param index the tape index
+		 */
+		private Node (final int index) {
+			this.index = index;
+		}
+
+
+		/**
+		 * Returns the type of this node's value.
+		 * @return the value type
+		 */
+		public Type type () {
+			return TYPES[JsonDocument.this.types[this.index]];
+		}
+
+
+		/**
+		 * Returns the number of elements or entries of this node's array or map.
+		 * @return the element count, or {@code 0} if this node is neither an array nor a map
+		 */
+		public int size () {
+			switch (this.type()) {
+				case ARRAY:
+					return JsonDocument.this.elementIndices(this.index).length;
+				case OBJECT:
+					int count = 0;
+					for (int child = this.index + 1; child < JsonDocument.this.nexts[this.index]; child = JsonDocument.this.nexts[child + 1]) count += 1;
+					return count;
+				default:
+					return 0;
+			}
+		}
+
+
+		/**
+		 * Returns the node associated with the given key within this node's map.
+		 * @param key the key
+		 * @return the associated node, or {@code null} if there is none, or if this node is not a map
+		 * @throws NullPointerException if the given key is {@code null}
+		 */
+		public Node get (final String key) throws NullPointerException {
+			if (key == null) throw new NullPointerException();
+			if (this.type() != Type.OBJECT) return null;
+
+			Node result = null;
+			for (int child = this.index + 1; child < JsonDocument.this.nexts[this.index]; child = JsonDocument.this.nexts[child + 1])
+				if (key.equals(JsonDocument.this.materialize(child))) result = new Node(child + 1);
+
+			return result;
+		}
+
+
+		/**
+		 * Returns the node at the given index within this node's array.
+		 * @param index the element index
+		 * @return the element node, or {@code null} if the index is out of range, or if this node is not an array
+		 */
+		public Node get (final int index) {
+			if (this.type() != Type.ARRAY) return null;
+
+			final int[] elementIndices = JsonDocument.this.elementIndices(this.index);
+			return index < 0 | index >= elementIndices.length ? null : new Node(elementIndices[index]);
+		}
+
+
+		/**
+		 * Returns the node at the given path relative to this node.
+		 * @param path the path as a var-arg array of String keys and/or Integer indices
+		 * @return the node, or {@code null} if the path does not exist
+		 * @throws NullPointerException if the given path or any of it's elements is {@code null}
+		 * @throws IllegalArgumentException if any path element is neither a String nor an Integer
+		 */
+		public Node find (final Object... path) throws NullPointerException, IllegalArgumentException {
+			Node node = this;
+			for (int position = 0; position < path.length & node != null; ++position) {
+				final Object element = path[position];
+				if (element instanceof String) node = node.get((String) element);
+				else if (element instanceof Integer) node = node.get(((Integer) element).intValue());
+				else if (element == null) throw new NullPointerException();
+				else throw new IllegalArgumentException(element.toString());
+			}
+
+			return node;
+		}
+
+
+		/**
+		 * Returns the keys of this node's map, in document order.
+		 * @return the keys, or an empty list if this node is not a map
+		 */
+		public List<String> keys () {
+			final List<String> keys = new ArrayList<>();
+			if (this.type() == Type.OBJECT) {
+				for (int child = this.index + 1; child < JsonDocument.this.nexts[this.index]; child = JsonDocument.this.nexts[child + 1])
+					keys.add((String) JsonDocument.this.materialize(child));
+			}
+
+			return keys;
+		}
+
+
+		/**
+		 * Returns this node's value, materializing it if necessary.
+		 * @return the value, either {@code null}, or an instance of Boolean, Number (Long or Double),
+		 *         String, Map&lt;String,Object&gt;, or Object[]
+		 * @throws IllegalArgumentException if the value's text is not valid JSON
+		 */
+		public Object value () throws IllegalArgumentException {
+			return JsonDocument.this.materialize(this.index);
+		}
+
+
+		/**
+		 * Returns this node's raw JSON text, without materializing it.
+		 * @return the raw JSON text
+		 */
+		public CharSequence text () {
+			return JsonDocument.this.text.subSequence(JsonDocument.this.begins[this.index], JsonDocument.this.ends[this.index]);
+		}
+	}
+}
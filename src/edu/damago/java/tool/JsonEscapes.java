@@ -0,0 +1,157 @@
+package edu.damago.java.tool;
+
+import java.io.IOException;
+
+
+/**
+ * Facade providing table-driven single-pass JSON string escaping and unescaping. Both
+ * directions feature a fast path for the common case that a string does not require any
+ * modification, in which case it's content is passed on without copying.
+ * @author Sascha Baumeister
+ */
+class JsonEscapes {
+	static private final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	static private final String[] ESCAPES = new String[128];
+	static private final char[] UNESCAPES = new char[128];
+	static {
+		for (char character = 0; character < 0x20; ++character)
+			ESCAPES[character] = "\\u00" + HEX_DIGITS[character >> 4] + HEX_DIGITS[character & 0xF];
+		ESCAPES['\b'] = "\\b";
+		ESCAPES['\f'] = "\\f";
+		ESCAPES['\n'] = "\\n";
+		ESCAPES['\r'] = "\\r";
+		ESCAPES['\t'] = "\\t";
+		ESCAPES['"'] = "\\\"";
+		ESCAPES['\''] = "\\'";
+		ESCAPES['\\'] = "\\\\";
+
+		UNESCAPES['b'] = '\b';
+		UNESCAPES['f'] = '\f';
+		UNESCAPES['n'] = '\n';
+		UNESCAPES['r'] = '\r';
+		UNESCAPES['t'] = '\t';
+		UNESCAPES['"'] = '"';
+		UNESCAPES['\''] = '\'';
+		UNESCAPES['\\'] = '\\';
+		UNESCAPES['/'] = '/';
+	}
+
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private JsonEscapes () {}
+
+
+	/**
+	 * Writes the given text into the given sink, escaping any quotes, backslashes and control
+	 * characters. Unmodified runs of characters are appended as sub-sequences, and text not
+	 * requiring any escapes is appended as a whole.
+	 * @param text the text
+	 * @param sink the appendable to write into
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void escape (final CharSequence text, final Appendable sink) throws NullPointerException, IOException {
+		final int length = text.length();
+
+		int runBegin = 0;
+		for (int index = 0; index < length; ++index) {
+			final char character = text.charAt(index);
+			if (character >= 128) continue;
+
+			final String escape = ESCAPES[character];
+			if (escape == null) continue;
+
+			if (runBegin < index) sink.append(text, runBegin, index);
+			sink.append(escape);
+			runBegin = index + 1;
+		}
+
+		if (runBegin == 0) sink.append(text);
+		else if (runBegin < length) sink.append(text, runBegin, length);
+	}
+
+
+	/**
+	 * Returns the given text range with it's escape sequences resolved. Besides the standard JSON
+	 * escape sequences, {@code \'} is supported; any other escape sequences are retained as is.
+	 * @param text the text
+	 * @param begin the begin position (inclusive)
+	 * @param end the end position (exclusive)
+	 * @return the unescaped string
+	 * @throws NullPointerException if the given text is {@code null}
+	 * @throws IndexOutOfBoundsException if the given range is out of bounds
+	 * @throws IllegalArgumentException if the range contains an incomplete unicode escape sequence
+	 */
+	static public String unescape (final CharSequence text, final int begin, final int end) throws NullPointerException, IndexOutOfBoundsException, IllegalArgumentException {
+		int index = begin;
+		while (index < end && text.charAt(index) != '\\') index += 1;
+		if (index == end) return text.subSequence(begin, end).toString();
+
+		final StringBuilder builder = new StringBuilder(end - begin);
+		builder.append(text, begin, index);
+
+		while (index < end) {
+			final char character = text.charAt(index++);
+			if (character != '\\' | index == end) {
+				builder.append(character);
+				continue;
+			}
+
+			final char escaped = text.charAt(index++);
+			if (escaped == 'u') {
+				if (index + 4 > end) throw new IllegalArgumentException("incomplete unicode escape sequence");
+				builder.append(hexCharacter(text.charAt(index), text.charAt(index + 1), text.charAt(index + 2), text.charAt(index + 3)));
+				index += 4;
+			} else {
+				final int unescaped = unescape(escaped);
+				if (unescaped == -1) builder.append('\\').append(escaped);
+				else builder.append((char) unescaped);
+			}
+		}
+
+		return builder.toString();
+	}
+
+
+	/**
+	 * Returns the character represented by the given escape character, i.e. the
+	 * character following a backslash. Unicode escape sequences are not covered.
+	 * @param escaped the escape character
+	 * @return the character represented, or {@code -1} if the given character is not a known escape
+	 */
+	static public int unescape (final char escaped) {
+		if (escaped >= 128) return -1;
+
+		final char character = UNESCAPES[escaped];
+		return character == 0 ? -1 : character;
+	}
+
+
+	/**
+	 * Returns the character represented by the given four hexadecimal digits.
+	 * @param digit3 the most significant digit
+	 * @param digit2 the second most significant digit
+	 * @param digit1 the second least significant digit
+	 * @param digit0 the least significant digit
+	 * @return the character
+	 * @throws IllegalArgumentException if any of the given characters is not a hexadecimal digit
+	 */
+	static public char hexCharacter (final char digit3, final char digit2, final char digit1, final char digit0) throws IllegalArgumentException {
+		return (char) (hexValue(digit3) << 12 | hexValue(digit2) << 8 | hexValue(digit1) << 4 | hexValue(digit0));
+	}
+
+
+	/**
+	 * Returns the value of the given hexadecimal digit.
+	 * @param digit the digit
+	 * @return the digit value
+	 * @throws IllegalArgumentException if the given character is not a hexadecimal digit
+	 */
+	static private int hexValue (final char digit) throws IllegalArgumentException {
+		final int value = Character.digit(digit, 16);
+		if (value == -1) throw new IllegalArgumentException("invalid hexadecimal digit: " + digit);
+		return value;
+	}
+}
@@ -0,0 +1,269 @@
+package edu.damago.java.tool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+
+/**
+ * Facade providing parallel parse and stringify operations for JSON Lines (NDJSON), i.e. text
+ * containing one JSON value per line. Inputs are split into chunks aligned to line boundaries,
+ * which are processed concurrently within the common fork-join pool; results always retain
+ * their input order. Blank lines are ignored.
+ * @author Sascha Baumeister
+ */
+public class JsonLines {
+	static private final int MIN_CHUNK_SIZE = 0x10000;
+
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private JsonLines () {}
+
+
+	/**
+	 * Returns the values parsed from the given JSON Lines representation, in input order.
+	 * @param text the JSON Lines representation
+	 * @return the values
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if any of the lines is not valid JSON
+	 */
+	static public List<Object> parse (final CharSequence text) throws NullPointerException, IllegalArgumentException {
+		return stream(text).collect(Collectors.toList());
+	}
+
+
+	/**
+	 * Returns the values parsed from the remaining content of the given UTF-8 encoded JSON Lines
+	 * buffer, in input order. String values are returned as lazily decoded {@link CharSequence}
+	 * instances, see {@link JSON#parse(ByteBuffer)}. The buffer's position and limit are not modified.
+	 * @param buffer the JSON Lines buffer
+	 * @return the values
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if any of the lines is not valid JSON
+	 */
+	static public List<Object> parse (final ByteBuffer buffer) throws NullPointerException, IllegalArgumentException {
+		return stream(buffer).collect(Collectors.toList());
+	}
+
+
+	/**
+	 * Returns the values parsed from the given UTF-8 encoded JSON Lines file, in input order.
+	 * The file is memory-mapped, and string values are returned as lazily decoded
+	 * {@link CharSequence} instances, see {@link JSON#parse(ByteBuffer)}.
+	 * @param path the JSON Lines file path
+	 * @return the values
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if any of the lines is not valid JSON,
+	 * 			or if the file is larger than 2GB
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public List<Object> parse (final Path path) throws NullPointerException, IllegalArgumentException, IOException {
+		try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return parse(fileChannel.map(MapMode.READ_ONLY, 0, fileChannel.size()));
+		}
+	}
+
+
+	/**
+	 * Returns an ordered parallel stream of the values parsed from the given JSON Lines representation.
+	 * @param text the JSON Lines representation
+	 * @return the value stream
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public Stream<Object> stream (final CharSequence text) throws NullPointerException {
+		final int[] boundaries = chunkBoundaries(text.length(), position -> text.charAt(position) == '\n');
+
+		return IntStream.range(0, boundaries.length - 1)
+			.parallel()
+			.mapToObj(chunkIndex -> parseChunk(text, boundaries[chunkIndex], boundaries[chunkIndex + 1]))
+			.flatMap(List::stream);
+	}
+
+
+	/**
+	 * Returns an ordered parallel stream of the values parsed from the remaining content of the
+	 * given UTF-8 encoded JSON Lines buffer. String values are returned as lazily decoded
+	 * {@link CharSequence} instances, see {@link JSON#parse(ByteBuffer)}.
+	 * @param buffer the JSON Lines buffer
+	 * @return the value stream
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public Stream<Object> stream (final ByteBuffer buffer) throws NullPointerException {
+		final ByteBuffer content = buffer.slice();
+		final int[] boundaries = chunkBoundaries(content.limit(), position -> content.get(position) == '\n');
+
+		return IntStream.range(0, boundaries.length - 1)
+			.parallel()
+			.mapToObj(chunkIndex -> parseChunk(content, boundaries[chunkIndex], boundaries[chunkIndex + 1]))
+			.flatMap(List::stream);
+	}
+
+
+	/**
+	 * Returns the JSON Lines representation of the given objects, in input order.
+	 * @param objects the objects
+	 * @return the JSON Lines representation
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public String stringify (final List<?> objects) throws NullPointerException {
+		final StringBuilder builder = new StringBuilder();
+		try {
+			stringify(objects, builder);
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+
+		return builder.toString();
+	}
+
+
+	/**
+	 * Writes the JSON Lines representation of the given objects into the given sink, in input order.
+	 * Chunks of objects are stringified concurrently into separate buffers, which are streamed into
+	 * the sink in order as soon as they are available.
+	 * @param objects the objects
+	 * @param sink the appendable to write into, like a Writer, a PrintStream, or a StringBuilder
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void stringify (final List<?> objects, final Appendable sink) throws NullPointerException, IOException {
+		if (sink == null) throw new NullPointerException();
+
+		final int chunkCount = Math.max(1, Math.min(objects.size() / 64, 4 * ForkJoinPool.getCommonPoolParallelism()));
+		final int chunkSize = (objects.size() + chunkCount - 1) / Math.max(1, chunkCount);
+
+		try {
+			IntStream.range(0, chunkCount)
+				.parallel()
+				.mapToObj(chunkIndex -> stringifyChunk(objects.subList(Math.min(objects.size(), chunkIndex * chunkSize), Math.min(objects.size(), (chunkIndex + 1) * chunkSize))))
+				.forEachOrdered(chunk -> {
+					try {
+						sink.append(chunk);
+					} catch (final IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+
+	/**
+	 * Returns the JSON Lines representation of the given chunk of objects.
+	 * @param objects the objects
+	 * @return the JSON Lines representation
+	 */
+	static private StringBuilder stringifyChunk (final List<?> objects) {
+		final StringBuilder builder = new StringBuilder();
+		try {
+			for (final Object object : objects) {
+				JSON.stringify(object, builder);
+				builder.append('\n');
+			}
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+
+		return builder;
+	}
+
+
+	/**
+	 * Parses the lines within the given text chunk.
+	 * @param text the text
+	 * @param begin the chunk begin position (inclusive)
+	 * @param end the chunk end position (exclusive)
+	 * @return the values parsed
+	 * @throws IllegalArgumentException if any of the lines is not valid JSON
+	 */
+	static private List<Object> parseChunk (final CharSequence text, final int begin, final int end) throws IllegalArgumentException {
+		final List<Object> values = new ArrayList<>();
+		final JsonShape shapes = new JsonShape();
+
+		for (int lineBegin = begin, lineEnd; lineBegin < end; lineBegin = lineEnd + 1) {
+			for (lineEnd = lineBegin; lineEnd < end && text.charAt(lineEnd) != '\n'; ++lineEnd);
+
+			int index = lineBegin;
+			while (index < lineEnd && Character.isWhitespace(text.charAt(index))) index += 1;
+			if (index == lineEnd) continue;
+
+			try {
+				values.add(new JsonParser(text, lineBegin, lineEnd, shapes, EnumSet.noneOf(JSON.ParseOption.class)).parse());
+			} catch (final IllegalArgumentException e) {
+				throw new IllegalArgumentException("invalid JSON line starting at position " + lineBegin, e);
+			}
+		}
+
+		return values;
+	}
+
+
+	/**
+	 * Parses the lines within the given buffer chunk.
+	 * @param buffer the buffer
+	 * @param begin the chunk begin position (inclusive)
+	 * @param end the chunk end position (exclusive)
+	 * @return the values parsed
+	 * @throws IllegalArgumentException if any of the lines is not valid JSON
+	 */
+	static private List<Object> parseChunk (final ByteBuffer buffer, final int begin, final int end) throws IllegalArgumentException {
+		final List<Object> values = new ArrayList<>();
+		final JsonShape shapes = new JsonShape();
+
+		for (int lineBegin = begin, lineEnd; lineBegin < end; lineBegin = lineEnd + 1) {
+			for (lineEnd = lineBegin; lineEnd < end && buffer.get(lineEnd) != '\n'; ++lineEnd);
+
+			int index = lineBegin;
+			while (index < lineEnd && buffer.get(index) <= ' ' && buffer.get(index) >= 0) index += 1;
+			if (index == lineEnd) continue;
+
+			try {
+				values.add(new JsonByteParser(buffer.slice(lineBegin, lineEnd - lineBegin), shapes, EnumSet.noneOf(JSON.ParseOption.class)).parse());
+			} catch (final IllegalArgumentException e) {
+				throw new IllegalArgumentException("invalid JSON line starting at byte position " + lineBegin, e);
+			}
+		}
+
+		return values;
+	}
+
+
+	/**
+	 * Returns the chunk boundaries for content of the given length, with each inner boundary
+	 * aligned to the position directly after a line break.
+	 * @param length the content length
+	 * @param lineBreak the predicate deciding whether or not a position contains a line break
+	 * @return the chunk boundaries, starting with {@code 0} and ending with the given length
+	 */
+	static private int[] chunkBoundaries (final int length, final IntPredicate lineBreak) {
+		final int chunkCount = Math.max(1, Math.min(length / MIN_CHUNK_SIZE, 4 * ForkJoinPool.getCommonPoolParallelism()));
+		final int chunkSize = length / chunkCount;
+
+		final int[] boundaries = new int[chunkCount + 1];
+		int boundaryCount = 1;
+		for (int chunkIndex = 1; chunkIndex < chunkCount; ++chunkIndex) {
+			int position = Math.max(chunkIndex * chunkSize, boundaries[boundaryCount - 1]);
+			while (position < length && !lineBreak.test(position)) position += 1;
+			if (position + 1 < length) boundaries[boundaryCount++] = position + 1;
+		}
+		boundaries[boundaryCount++] = length;
+
+		return Arrays.copyOf(boundaries, boundaryCount);
+	}
+}
@@ -0,0 +1,129 @@
+package edu.damago.java.tool;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Facade generating and applying JSON merge patches as defined by RFC 7386, for value trees
+ * as returned by {@link JSON#parse(String)}. A merge patch is itself such a value: maps within
+ * a patch are merged recursively into the corresponding target maps, {@code null} values remove
+ * the corresponding map entries, and any other value replaces the corresponding target value as
+ * a whole. Arrays are therefore always replaced completely. Unchanged subtrees are omitted from
+ * generated patches, which makes them well suited for shipping the changes between periodically
+ * refreshed results. Note that merge patches cannot express map entries with {@code null} values;
+ * such entries are treated like absent ones, as required by the RFC.
+ * @author Sascha Baumeister
+ */
+public class JsonMergePatch {
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private JsonMergePatch () {}
+
+
+	/**
+	 * Returns a merge patch transforming the given source value into the given target value.
+	 * Applying the patch to the source value yields a value equal to the target value, except
+	 * for map entries with {@code null} values, which are omitted. If both arguments are maps,
+	 * the patch is a map containing the changed entries only, which is empty if nothing changed.
+	 * @param source the source value, or {@code null}
+	 * @param target the target value, or {@code null}
+	 * @return the merge patch, or {@code null}
+	 */
+	static public Object diff (final Object source, final Object target) {
+		if (!(source instanceof Map) | !(target instanceof Map)) return target;
+
+		final Map<?,?> sourceMap = (Map<?,?>) source, targetMap = (Map<?,?>) target;
+		final Map<String,Object> patch = new LinkedHashMap<>();
+		for (final Map.Entry<?,?> entry : sourceMap.entrySet()) {
+			if (entry.getValue() != null && targetMap.get(entry.getKey()) == null)
+				patch.put(String.valueOf(entry.getKey()), null);
+		}
+
+		for (final Map.Entry<?,?> entry : targetMap.entrySet()) {
+			final Object sourceValue = sourceMap.get(entry.getKey()), targetValue = entry.getValue();
+			if (targetValue == null || equal(sourceValue, targetValue)) continue;
+
+			final Object value = diff(sourceValue, targetValue);
+			if (value instanceof Map && sourceValue instanceof Map && ((Map<?,?>) value).isEmpty()) continue;
+			patch.put(String.valueOf(entry.getKey()), value);
+		}
+
+		return patch;
+	}
+
+
+	/**
+	 * Returns the result of applying the given merge patch to the given target value.
+	 * Neither of the arguments is modified; unchanged subtrees of the target value
+	 * are shared with the result.
+	 * @param target the target value, or {@code null}
+	 * @param patch the merge patch, or {@code null}
+	 * @return the patched value, or {@code null}
+	 */
+	static public Object apply (final Object target, final Object patch) {
+		if (!(patch instanceof Map)) return patch;
+
+		final Map<String,Object> result = new LinkedHashMap<>();
+		if (target instanceof Map) {
+			for (final Map.Entry<?,?> entry : ((Map<?,?>) target).entrySet())
+				if (entry.getValue() != null) result.put(String.valueOf(entry.getKey()), entry.getValue());
+		}
+
+		for (final Map.Entry<?,?> entry : ((Map<?,?>) patch).entrySet()) {
+			final String key = String.valueOf(entry.getKey());
+			if (entry.getValue() == null) {
+				result.remove(key);
+			} else {
+				result.put(key, apply(result.get(key), entry.getValue()));
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Returns whether or not the given values are deeply equal. Map entries with {@code null}
+	 * values are treated like absent ones, arrays are compared element-wise, and character
+	 * sequences like lazily decoded strings are compared by content.
+	 * @param left the left value, or {@code null}
+	 * @param right the right value, or {@code null}
+	 * @return {@code true} if the values are equal, {@code false} otherwise
+	 */
+	static private boolean equal (final Object left, final Object right) {
+		if (left == right) return true;
+		if (left == null | right == null) return false;
+
+		if (left instanceof Map & right instanceof Map) {
+			final Map<?,?> leftMap = (Map<?,?>) left, rightMap = (Map<?,?>) right;
+			int leftCount = 0;
+			for (final Map.Entry<?,?> entry : leftMap.entrySet()) {
+				if (entry.getValue() == null) continue;
+				if (!equal(entry.getValue(), rightMap.get(entry.getKey()))) return false;
+				leftCount += 1;
+			}
+
+			int rightCount = 0;
+			for (final Object value : rightMap.values())
+				if (value != null) rightCount += 1;
+			return leftCount == rightCount;
+		}
+
+		if (left instanceof Object[] & right instanceof Object[]) {
+			final Object[] leftArray = (Object[]) left, rightArray = (Object[]) right;
+			if (leftArray.length != rightArray.length) return false;
+			for (int index = 0; index < leftArray.length; ++index)
+				if (!equal(leftArray[index], rightArray[index])) return false;
+			return true;
+		}
+
+		if (left instanceof CharSequence & right instanceof CharSequence) return left.toString().equals(right.toString());
+		if (left.getClass().isArray() & right.getClass().isArray()) return Arrays.deepEquals(new Object[] { left }, new Object[] { right });
+		return Objects.equals(left, right);
+	}
+}
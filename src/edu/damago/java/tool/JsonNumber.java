@@ -0,0 +1,216 @@
+package edu.damago.java.tool;
+
+
+/**
+ * Instances of this class represent lazily parsed JSON numbers, which keep their raw
+ * text representation until their value is requested for the first time. Additionally,
+ * this class provides an exception-free single-pass number scanner. Note that instances
+ * are immutable, only equal other instances of the same value, and that their string
+ * representation is the one of their value, just like for eagerly parsed numbers.
+ * @author Sascha Baumeister
+ */
+class JsonNumber extends Number {
+	static private final long serialVersionUID = 1L;
+	static private final double[] EXACT_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	static private final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private final String text;
+	private transient Number value;
+
+
+	/**
+	 * Initializes a new instance. The given text must have been validated by {@link #scan}.
+	 * @param text the raw JSON number text
+	 */
+	private JsonNumber (final String text) {
+		this.text = text;
+	}
+
+
+	/**
+	 * Returns the value, parsing it on first access.
+	 * @return the value, either of type {@code Long} or {@code Double}
+	 */
+	public Number value () {
+		if (this.value == null) this.value = scan(this.text, 0, this.text.length(), false);
+		return this.value;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int intValue () {
+		return this.value().intValue();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long longValue () {
+		return this.value().longValue();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public float floatValue () {
+		return this.value().floatValue();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double doubleValue () {
+		return this.value().doubleValue();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode () {
+		return this.value().hashCode();
+	}
+
+
+	/**
+	 * Returns whether or not the given object is a lazily parsed number of the same value.
+	 * @param object the object, or {@code null}
+	 * @return {@code true} if the object is an equal lazily parsed number, {@code false} otherwise
+	 */
+	@Override
+	public boolean equals (final Object object) {
+		return object instanceof JsonNumber && this.value().equals(((JsonNumber) object).value());
+	}
+
+
+	/**
+	 * Returns the string representation of the value, which normalizes the raw
+	 * text's leading plus signs and zeros, and is therefore valid JSON.
+	 * @return the string representation of the value
+	 */
+	@Override
+	public String toString () {
+		return this.value().toString();
+	}
+
+
+	/**
+	 * Scans the given text range for a number in a single pass, without throwing exceptions for
+	 * invalid input. Integral numbers within the range of {@code long} are returned as {@code Long},
+	 * any others as {@code Double}. Integral and decimal numbers with up to 15 significant digits
+	 * and small exponents are computed directly; others are delegated to
+	 * {@link Double#parseDouble(String)} after validation. Besides JSON numbers, a leading plus
+	 * sign, {@code NaN}, and signed or unsigned {@code Infinity} are accepted.
+	 * @param text the text
+	 * @param begin the begin position (inclusive)
+	 * @param end the end position (exclusive)
+	 * @param lazy whether or not a lazily parsed number shall be returned
+	 * @return the number, or {@code null} if the text range does not represent a number
+	 * @throws NullPointerException if the given text is {@code null}
+	 * @throws IndexOutOfBoundsException if the given range is out of bounds
+	 */
+	static Number scan (final CharSequence text, final int begin, final int end, final boolean lazy) throws NullPointerException, IndexOutOfBoundsException {
+		if (begin >= end) return null;
+
+		int position = begin;
+		final boolean negative = text.charAt(position) == '-';
+		if (negative | text.charAt(position) == '+') position += 1;
+
+		if (position < end && (text.charAt(position) == 'N' | text.charAt(position) == 'I')) {
+			if (matches(text, position, end, "NaN")) return lazy ? new JsonNumber(text.subSequence(begin, end).toString()) : Double.NaN;
+			if (matches(text, position, end, "Infinity")) return lazy ? new JsonNumber(text.subSequence(begin, end).toString()) : (negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+			return null;
+		}
+
+		// integral digits, accumulated negatively in order to cover Long.MIN_VALUE
+		long mantissa = 0;
+		int digitCount = 0, droppedDigitCount = 0;
+		boolean overflow = false;
+		final int integralBegin = position;
+		for (char character; position < end && (character = text.charAt(position)) >= '0' & character <= '9'; ++position) {
+			final int digit = character - '0';
+			if (overflow | mantissa < (Long.MIN_VALUE + digit) / 10) {
+				overflow = true;
+				droppedDigitCount += 1;
+			} else {
+				mantissa = mantissa * 10 - digit;
+				if (mantissa != 0) digitCount += 1;
+			}
+		}
+		if (position == integralBegin) return null;
+
+		// fraction digits
+		int fractionDigitCount = 0;
+		boolean integral = true;
+		if (position < end && text.charAt(position) == '.') {
+			integral = false;
+			final int fractionBegin = ++position;
+			for (char character; position < end && (character = text.charAt(position)) >= '0' & character <= '9'; ++position) {
+				final int digit = character - '0';
+				if (!overflow & mantissa >= (Long.MIN_VALUE + digit) / 10) {
+					mantissa = mantissa * 10 - digit;
+					fractionDigitCount += 1;
+					if (mantissa != 0) digitCount += 1;
+				}
+			}
+			if (position == fractionBegin) return null;
+		}
+
+		// exponent
+		int exponent = 0;
+		if (position < end && (text.charAt(position) == 'e' | text.charAt(position) == 'E')) {
+			integral = false;
+			position += 1;
+			final boolean negativeExponent = position < end && text.charAt(position) == '-';
+			if (position < end && (text.charAt(position) == '-' | text.charAt(position) == '+')) position += 1;
+
+			final int exponentBegin = position;
+			for (char character; position < end && (character = text.charAt(position)) >= '0' & character <= '9'; ++position)
+				if (exponent < 10000) exponent = exponent * 10 + (character - '0');
+			if (position == exponentBegin) return null;
+			if (negativeExponent) exponent = -exponent;
+		}
+		if (position != end) return null;
+
+		if (lazy) return new JsonNumber(text.subSequence(begin, end).toString());
+		if (integral & !overflow) {
+			if (negative) return mantissa;
+			if (mantissa != Long.MIN_VALUE) return -mantissa;
+		}
+
+		final int scale = exponent + droppedDigitCount - fractionDigitCount;
+		if (!overflow & digitCount <= 15 & -mantissa < MAX_EXACT_MANTISSA & scale >= -22 & scale <= 22) {
+			final double magnitude = scale < 0 ? -mantissa / EXACT_POWERS_OF_TEN[-scale] : -mantissa * EXACT_POWERS_OF_TEN[scale];
+			return negative ? -magnitude : magnitude;
+		}
+
+		return Double.parseDouble(text.subSequence(begin, end).toString());
+	}
+
+
+	/**
+	 * Returns whether or not the given text range equals the given literal.
+	 * @param text the text
+	 * @param begin the begin position (inclusive)
+	 * @param end the end position (exclusive)
+	 * @param literal the literal
+	 * @return {@code true} if the range matches the literal, {@code false} otherwise
+	 */
+	static boolean matches (final CharSequence text, final int begin, final int end, final String literal) {
+		if (end - begin != literal.length()) return false;
+
+		for (int index = 0; index < literal.length(); ++index)
+			if (text.charAt(begin + index) != literal.charAt(index)) return false;
+		return true;
+	}
+}
@@ -0,0 +1,158 @@
+package edu.damago.java.tool;
+
+import java.util.Arrays;
+
+
+/**
+ * Instances of this class represent homogeneous numeric JSON arrays which have been scanned
+ * directly into primitive arrays, without boxing their elements. Integral elements within the
+ * range of {@code long} with up to 18 digits are accumulated inline, any others are scanned
+ * using {@link JsonNumber#scan}. Note that instances are not thread-safe.
+ * @author Sascha Baumeister
+ */
+class JsonNumericArray {
+	private long[] longs;
+	private double[] doubles;
+	private int size;
+	private int end;
+
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private JsonNumericArray () {
+		this.longs = new long[16];
+	}
+
+
+	/**
+	 * Returns the position after the array's closing bracket.
+	 * @return the end position
+	 */
+	public int end () {
+		return this.end;
+	}
+
+
+	/**
+	 * Returns the elements, trimmed to size.
+	 * @return the elements, as {@code long[]} if all of them are integral, otherwise as {@code double[]}
+	 */
+	public Object toArray () {
+		return this.doubles == null ? Arrays.copyOf(this.longs, this.size) : Arrays.copyOf(this.doubles, this.size);
+	}
+
+
+	/**
+	 * Adds the given integral element.
+	 * @param value the element
+	 */
+	private void add (final long value) {
+		if (this.doubles != null) {
+			this.add((double) value);
+			return;
+		}
+
+		if (this.size == this.longs.length) this.longs = Arrays.copyOf(this.longs, 2 * this.size);
+		this.longs[this.size++] = value;
+	}
+
+
+	/**
+	 * Adds the given floating-point element, converting any previous elements to floating-point if required.
+	 * @param value the element
+	 */
+	private void add (final double value) {
+		if (this.doubles == null) {
+			this.doubles = new double[this.longs.length];
+			for (int index = 0; index < this.size; ++index) this.doubles[index] = this.longs[index];
+			this.longs = null;
+		}
+
+		if (this.size == this.doubles.length) this.doubles = Arrays.copyOf(this.doubles, 2 * this.size);
+		this.doubles[this.size++] = value;
+	}
+
+
+	/**
+	 * Scans the elements of a JSON array, starting after it's opening bracket. Note that this
+	 * operation does not report errors; any array that is empty, not homogeneously numeric, or
+	 * otherwise invalid is rejected, in order to be re-parsed generically.
+	 * @param text the text
+	 * @param begin the position after the opening bracket
+	 * @param limit the text limit
+	 * @return the numeric array, or {@code null} if the array is not a non-empty homogeneous numeric array
+	 * @throws NullPointerException if the given text is {@code null}
+	 */
+	static JsonNumericArray scan (final CharSequence text, final int begin, final int limit) throws NullPointerException {
+		final JsonNumericArray array = new JsonNumericArray();
+
+		int position = begin;
+		while (true) {
+			position = skipWhitespace(text, position, limit);
+			if (position >= limit) return null;
+
+			// simple integers are accumulated inline, anything else is delegated to the number scanner
+			final int literalBegin = position;
+			final boolean negative = text.charAt(position) == '-';
+			if (negative) position += 1;
+
+			final int digitsBegin = position;
+			long value = 0;
+			for (char character; position < limit && position - digitsBegin < 18 && (character = text.charAt(position)) >= '0' & character <= '9'; ++position)
+				value = value * 10 + (character - '0');
+
+			if (position > digitsBegin && (position == limit || isDelimiter(text.charAt(position)))) {
+				array.add(negative ? -value : value);
+			} else {
+				position = literalBegin;
+				while (position < limit && !isDelimiter(text.charAt(position))) position += 1;
+
+				final Number number = JsonNumber.scan(text, literalBegin, position, false);
+				if (number instanceof Long) array.add(number.longValue());
+				else if (number instanceof Double) array.add(number.doubleValue());
+				else return null;
+			}
+
+			position = skipWhitespace(text, position, limit);
+			if (position >= limit) return null;
+
+			final char delimiter = text.charAt(position++);
+			if (delimiter == ',') {
+				position = skipWhitespace(text, position, limit);
+				if (position < limit && text.charAt(position) == ']') {
+					array.end = position + 1;
+					return array;
+				}
+			} else if (delimiter == ']') {
+				array.end = position;
+				return array;
+			} else {
+				return null;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the position of the next non-whitespace character at or after the given position.
+	 * @param text the text
+	 * @param position the position
+	 * @param limit the text limit
+	 * @return the next non-whitespace position, or the limit
+	 */
+	static private int skipWhitespace (final CharSequence text, int position, final int limit) {
+		while (position < limit && Character.isWhitespace(text.charAt(position))) position += 1;
+		return position;
+	}
+
+
+	/**
+	 * Returns whether or not the given character terminates an unquoted literal.
+	 * @param character the character
+	 * @return {@code true} if the character is a delimiter, {@code false} otherwise
+	 */
+	static private boolean isDelimiter (final char character) {
+		return character == ',' | character == ':' | character == ']' | character == '}' | character == '[' | character == '{' | Character.isWhitespace(character);
+	}
+}
@@ -0,0 +1,214 @@
+package edu.damago.java.tool;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+
+/**
+ * Facade parsing large top-level JSON arrays in parallel. A fast structural scan first locates
+ * the top-level element boundaries, only tracking strings and bracket nesting; the elements are
+ * then parsed concurrently in chunks within the common fork-join pool, and assembled in their
+ * original order. Inputs which are too small, which are not arrays, or for which the structural
+ * scan fails, are parsed sequentially instead.
+ * @author Sascha Baumeister
+ */
+class JsonParallelParser {
+	static private final int MIN_CHUNK_SIZE = 0x10000;
+	static private final int MIN_PARALLEL_SIZE = 4 * MIN_CHUNK_SIZE;
+
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private JsonParallelParser () {}
+
+
+	/**
+	 * Returns an object parsed from the given JSON representation, parsing the elements of a
+	 * top-level array in parallel.
+	 * @param text the JSON representation
+	 * @param options the parse options
+	 * @return the object, or null
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the text is not valid JSON
+	 */
+	static public Object parse (final CharSequence text, final Set<JSON.ParseOption> options) throws NullPointerException, IllegalArgumentException {
+		final int[] separators = text.length() < MIN_PARALLEL_SIZE ? null : separators(text.length(), position -> text.charAt(position), options);
+		if (separators == null) return new JsonParser(text, 0, text.length(), new JsonShape(), options).parse();
+
+		final Object[] elements = new Object[separators.length - 1];
+		final int[] chunkBoundaries = chunkBoundaries(separators);
+		IntStream.range(0, chunkBoundaries.length - 1)
+			.parallel()
+			.forEach(chunkIndex -> {
+				final JsonShape shapes = new JsonShape();
+				for (int index = chunkBoundaries[chunkIndex]; index < chunkBoundaries[chunkIndex + 1]; ++index) {
+					if (index == elements.length - 1 && isBlank(text, separators[index] + 1, separators[index + 1])) break;
+					elements[index] = new JsonParser(text, separators[index] + 1, separators[index + 1], shapes, options).parse();
+				}
+			});
+
+		return trim(elements, isBlank(text, separators[separators.length - 2] + 1, separators[separators.length - 1]));
+	}
+
+
+	/**
+	 * Returns an object parsed from the remaining content of the given UTF-8 encoded JSON buffer,
+	 * parsing the elements of a top-level array in parallel. String values are returned as lazily
+	 * decoded {@link CharSequence} instances, see {@link JSON#parse(ByteBuffer)}. The buffer's
+	 * position and limit are not modified.
+	 * @param buffer the JSON representation
+	 * @param options the parse options
+	 * @return the object, or null
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the content is not valid JSON
+	 */
+	static public Object parse (final ByteBuffer buffer, final Set<JSON.ParseOption> options) throws NullPointerException, IllegalArgumentException {
+		final ByteBuffer content = buffer.slice();
+		final int[] separators = content.limit() < MIN_PARALLEL_SIZE ? null : separators(content.limit(), position -> content.get(position) & 0xFF, options);
+		if (separators == null) return new JsonByteParser(content, new JsonShape(), options).parse();
+
+		final Object[] elements = new Object[separators.length - 1];
+		final int[] chunkBoundaries = chunkBoundaries(separators);
+		IntStream.range(0, chunkBoundaries.length - 1)
+			.parallel()
+			.forEach(chunkIndex -> {
+				final JsonShape shapes = new JsonShape();
+				for (int index = chunkBoundaries[chunkIndex]; index < chunkBoundaries[chunkIndex + 1]; ++index) {
+					final int begin = separators[index] + 1, end = separators[index + 1];
+					if (index == elements.length - 1 && isBlank(content, begin, end)) break;
+					elements[index] = new JsonByteParser(content.slice(begin, end - begin), shapes, options).parse();
+				}
+			});
+
+		return trim(elements, isBlank(content, separators[separators.length - 2] + 1, separators[separators.length - 1]));
+	}
+
+
+	/**
+	 * Scans the given content for the positions of the top-level array's opening bracket,
+	 * element separating commas, and closing bracket.
+	 * @param limit the content length
+	 * @param characters the operator returning the (ASCII) character at a given position
+	 * @param options the parse options
+	 * @return the separator positions, or {@code null} if the content shall be parsed sequentially
+	 */
+	static private int[] separators (final int limit, final IntUnaryOperator characters, final Set<JSON.ParseOption> options) {
+		int position = 0;
+		while (position < limit && Character.isWhitespace(characters.applyAsInt(position))) position += 1;
+		if (position == limit || characters.applyAsInt(position) != '[') return null;
+
+		int[] separators = new int[256];
+		int size = 0;
+		separators[size++] = position++;
+
+		for (int nesting = 1; nesting > 0; ++position) {
+			if (position >= limit) return null;
+
+			final int character = characters.applyAsInt(position);
+			switch (character) {
+				case '"': case '\'':
+					for (position += 1; position < limit && characters.applyAsInt(position) != character; ++position)
+						if (characters.applyAsInt(position) == '\\') position += 1;
+					break;
+				case '[': case '{':
+					nesting += 1;
+					break;
+				case ']': case '}':
+					if (--nesting > 0) break;
+					if (character != ']') return null;
+					if (size == separators.length) separators = Arrays.copyOf(separators, 2 * size);
+					separators[size++] = position;
+					break;
+				case ',':
+					if (nesting > 1) break;
+					if (size == separators.length) separators = Arrays.copyOf(separators, 2 * size);
+					separators[size++] = position;
+					break;
+				default:
+					break;
+			}
+		}
+
+		while (position < limit && Character.isWhitespace(characters.applyAsInt(position))) position += 1;
+		if (position < limit | size < 3) return null;
+
+		// numeric arrays are parsed sequentially if they are to be returned as primitive arrays
+		if (options.contains(JSON.ParseOption.PRIMITIVE_ARRAYS)) {
+			position = separators[0] + 1;
+			while (Character.isWhitespace(characters.applyAsInt(position))) position += 1;
+			final int character = characters.applyAsInt(position);
+			if (character == '-' | (character >= '0' & character <= '9')) return null;
+		}
+
+		return Arrays.copyOf(separators, size);
+	}
+
+
+	/**
+	 * Returns the chunk boundaries as element indices, aiming for chunks spanning at least
+	 * {@value #MIN_CHUNK_SIZE} characters, and a sufficient number of chunks for load balancing.
+	 * @param separators the element separator positions
+	 * @return the chunk boundaries
+	 */
+	static private int[] chunkBoundaries (final int[] separators) {
+		final int elementCount = separators.length - 1;
+		final int length = separators[elementCount] - separators[0];
+		final int chunkSize = Math.max(MIN_CHUNK_SIZE, length / (4 * ForkJoinPool.getCommonPoolParallelism()));
+
+		final int[] boundaries = new int[elementCount + 1];
+		int size = 0;
+		boundaries[size++] = 0;
+		for (int index = 1, chunkBegin = separators[0]; index <= elementCount; ++index) {
+			if (index == elementCount || separators[index] - chunkBegin >= chunkSize) {
+				boundaries[size++] = index;
+				chunkBegin = separators[index];
+			}
+		}
+
+		return Arrays.copyOf(boundaries, size);
+	}
+
+
+	/**
+	 * Returns the given elements, omitting the last one if it represents a blank trailing element.
+	 * @param elements the elements
+	 * @param trailingBlank whether or not the last element is blank
+	 * @return the elements
+	 */
+	static private Object[] trim (final Object[] elements, final boolean trailingBlank) {
+		return trailingBlank ? Arrays.copyOf(elements, elements.length - 1) : elements;
+	}
+
+
+	/**
+	 * Returns whether or not the given text range consists of whitespace only.
+	 * @param text the text
+	 * @param begin the begin position (inclusive)
+	 * @param end the end position (exclusive)
+	 * @return {@code true} if the range is blank, {@code false} otherwise
+	 */
+	static private boolean isBlank (final CharSequence text, final int begin, final int end) {
+		for (int position = begin; position < end; ++position)
+			if (!Character.isWhitespace(text.charAt(position))) return false;
+		return true;
+	}
+
+
+	/**
+	 * Returns whether or not the given buffer range consists of whitespace only.
+	 * @param buffer the buffer
+	 * @param begin the begin position (inclusive)
+	 * @param end the end position (exclusive)
+	 * @return {@code true} if the range is blank, {@code false} otherwise
+	 */
+	static private boolean isBlank (final ByteBuffer buffer, final int begin, final int end) {
+		for (int position = begin; position < end; ++position)
+			if (!Character.isWhitespace(buffer.get(position) & 0xFF)) return false;
+		return true;
+	}
+}
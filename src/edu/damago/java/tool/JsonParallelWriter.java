@@ -0,0 +1,186 @@
+package edu.damago.java.tool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+
+/**
+ * Facade stringifying large collections in parallel. Lists, arrays and maps with at least the
+ * given number of elements are split into chunks, which are stringified concurrently within the
+ * common fork-join pool into separate buffers; these are then written into the sink in order as
+ * soon as they are available. Smaller collections are descended into sequentially, so large
+ * collections nested within small ones are stringified in parallel as well. A single JSON
+ * writer is used for the sink, and one per chunk, for all keys and values. The output is
+ * identical to the one of {@link JsonWriter}.
+ * @author Sascha Baumeister
+ */
+class JsonParallelWriter {
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private JsonParallelWriter () {}
+
+
+	/**
+	 * Writes the JSON representation for the given object into the given sink.
+	 * @param object the object, or {@code null}
+	 * @param sink the appendable to write into
+	 * @param parallelThreshold the minimum number of elements or entries for a collection to be stringified in parallel
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void write (final Object object, final Appendable sink, final int parallelThreshold) throws IOException {
+		write(object, new JsonWriter(sink), parallelThreshold);
+	}
+
+
+	/**
+	 * Writes the JSON representation for the given object using the given writer.
+	 * @param object the object, or {@code null}
+	 * @param writer the JSON writer, positioned between top-level values
+	 * @param parallelThreshold the minimum number of elements or entries for a collection to be stringified in parallel
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void write (final Object object, final JsonWriter writer, final int parallelThreshold) throws IOException {
+		if (object instanceof Object[]) {
+			writeArray((Object[]) object, writer, parallelThreshold);
+		} else if (object instanceof List) {
+			final List<?> list = (List<?>) object;
+			writeArray(list instanceof RandomAccess ? list : Arrays.asList(list.toArray()), writer, parallelThreshold);
+		} else if (object instanceof Map) {
+			writeMap((Map<?,?>) object, writer, parallelThreshold);
+		} else {
+			writer.write(object);
+		}
+	}
+
+
+	/**
+	 * Writes the given elements as a JSON array.
+	 * @param elements the elements
+	 * @param writer the JSON writer
+	 * @param parallelThreshold the minimum number of elements for the array to be stringified in parallel
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void writeArray (final Object[] elements, final JsonWriter writer, final int parallelThreshold) throws IOException {
+		writeArray(Arrays.asList(elements), writer, parallelThreshold);
+	}
+
+
+	/**
+	 * Writes the given elements as a JSON array.
+	 * @param elements the random access list of elements
+	 * @param writer the JSON writer
+	 * @param parallelThreshold the minimum number of elements for the array to be stringified in parallel
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void writeArray (final List<?> elements, final JsonWriter writer, final int parallelThreshold) throws IOException {
+		final Appendable sink = writer.getSink();
+		sink.append('[');
+		if (elements.size() < parallelThreshold) {
+			for (int index = 0; index < elements.size(); ++index) {
+				if (index > 0) sink.append(", ");
+				write(elements.get(index), writer, parallelThreshold);
+			}
+		} else {
+			writeChunks(elements.size(), sink, (chunkWriter, index) -> chunkWriter.write(elements.get(index)));
+		}
+		sink.append(']');
+	}
+
+
+	/**
+	 * Writes the given map as a JSON map.
+	 * @param map the map
+	 * @param writer the JSON writer
+	 * @param parallelThreshold the minimum number of entries for the map to be stringified in parallel
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void writeMap (final Map<?,?> map, final JsonWriter writer, final int parallelThreshold) throws IOException {
+		final Appendable sink = writer.getSink();
+		sink.append('{');
+		if (map.size() < parallelThreshold) {
+			boolean first = true;
+			for (final Map.Entry<?,?> entry : map.entrySet()) {
+				if (!first) sink.append(", ");
+				first = false;
+
+				writer.value(String.valueOf(entry.getKey()));
+				sink.append(": ");
+				write(entry.getValue(), writer, parallelThreshold);
+			}
+		} else {
+			final Map.Entry<?,?>[] entries = map.entrySet().toArray(new Map.Entry<?,?>[0]);
+			writeChunks(entries.length, sink, (chunkWriter, index) -> {
+				chunkWriter.value(String.valueOf(entries[index].getKey()));
+				chunkWriter.getSink().append(": ");
+				chunkWriter.write(entries[index].getValue());
+			});
+		}
+		sink.append('}');
+	}
+
+
+	/**
+	 * Stringifies the given number of elements in parallel chunks, and writes the
+	 * chunks into the given sink in order, separated by commas.
+	 * @param size the number of elements
+	 * @param sink the appendable to write into
+	 * @param elementWriter the writer stringifying an element with a given index using a given chunk writer
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void writeChunks (final int size, final Appendable sink, final ElementWriter elementWriter) throws IOException {
+		final int chunkCount = Math.max(1, Math.min(size / 64, 4 * ForkJoinPool.getCommonPoolParallelism()));
+		final int chunkSize = (size + chunkCount - 1) / chunkCount;
+
+		try {
+			IntStream.range(0, chunkCount)
+				.parallel()
+				.mapToObj(chunkIndex -> {
+					final StringBuilder builder = new StringBuilder();
+					final JsonWriter chunkWriter = new JsonWriter(builder);
+					try {
+						for (int index = chunkIndex * chunkSize, end = Math.min(size, (chunkIndex + 1) * chunkSize); index < end; ++index) {
+							if (index > 0) builder.append(", ");
+							elementWriter.write(chunkWriter, index);
+						}
+					} catch (final IOException e) {
+						throw new AssertionError(e);
+					}
+					return builder;
+				})
+				.forEachOrdered(chunk -> {
+					try {
+						sink.append(chunk);
+					} catch (final IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+
+
+	/**
+	 * Instances of this interface stringify elements by index.
+	 */
+	@FunctionalInterface
+	static private interface ElementWriter {
+
+		/**
+		 * Stringifies the element with the given index using the given writer.
+		 * @param writer the chunk's JSON writer, positioned between top-level values
+		 * @param index the element index
+		 * @throws IOException if there is an I/O related problem
+		 */
+		void write (JsonWriter writer, int index) throws IOException;
+	}
+}
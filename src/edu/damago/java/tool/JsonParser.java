@@ -0,0 +1,314 @@
+package edu.damago.java.tool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Instances of this class parse JSON representations in a single pass, using a
+ * position cursor and an explicit container stack instead of recursion over
+ * substrings. Maps are returned as compact array-backed maps, which share their
+ * keys with all other maps featuring the same key sequence. Note that instances
+ * are not thread-safe, and are meant to be used for a single parse operation only.
+ * @author Sascha Baumeister
+ */
+class JsonParser {
+	private final CharSequence text;
+	private final int limit;
+	private final JsonShape shapes;
+	private final boolean lazyNumbers;
+	private final boolean primitiveArrays;
+	private int position;
+
+
+	/**
+	 * Initializes a new instance for the given text range.
+	 * @param text the JSON text
+	 * @param begin the begin position (inclusive)
+	 * @param end the end position (exclusive)
+	 * @throws NullPointerException if the given text is {@code null}
+	 * @throws IndexOutOfBoundsException if the given range is out of bounds
+	 */
+	public JsonParser (final CharSequence text, final int begin, final int end) throws NullPointerException, IndexOutOfBoundsException {
+		this(text, begin, end, new JsonShape(), EnumSet.noneOf(JSON.ParseOption.class));
+	}
+
+
+	/**
+	 * Initializes a new instance for the given text range. Maps parsed share their key
+	 * shapes with any other maps using the same shape tree.
+	 * @param text the JSON text
+	 * @param begin the begin position (inclusive)
+	 * @param end the end position (exclusive)
+	 * @param shapes the shape tree to use for parsed maps
+	 * @param options the parse options
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IndexOutOfBoundsException if the given range is out of bounds
+	 */
+	public JsonParser (final CharSequence text, final int begin, final int end, final JsonShape shapes, final Set<JSON.ParseOption> options) throws NullPointerException, IndexOutOfBoundsException {
+		if (begin < 0 | end > text.length() | begin > end) throw new IndexOutOfBoundsException();
+
+		this.text = text;
+		this.limit = end;
+		this.shapes = shapes.root();
+		this.lazyNumbers = options.contains(JSON.ParseOption.LAZY_NUMBERS);
+		this.primitiveArrays = options.contains(JSON.ParseOption.PRIMITIVE_ARRAYS);
+		this.position = begin;
+	}
+
+
+	/**
+	 * Parses the complete text range as a single JSON value, surrounded by optional whitespace.
+	 * @return the value, either {@code null}, or an instance of Boolean, Number (Long or Double),
+	 *         String, Map&lt;String,Object&gt;, or Object[]
+	 * @throws IllegalArgumentException if the text range does not represent a single valid JSON value
+	 */
+	public Object parse () throws IllegalArgumentException {
+		final Object value = this.parseValue();
+
+		this.skipWhitespace();
+		if (this.position < this.limit) throw this.exception();
+		return value;
+	}
+
+
+	/**
+	 * Parses the next JSON value starting at the current cursor position. Nested containers
+	 * are tracked on an explicit stack, so each character is visited exactly once regardless
+	 * of the nesting depth.
+	 * @return the value, either {@code null}, or an instance of Boolean, Number (Long or Double),
+	 *         String, Map&lt;String,Object&gt;, or Object[]
+	 * @throws IllegalArgumentException if the text does not contain a valid JSON value
+	 */
+	@SuppressWarnings("unchecked")
+	public Object parseValue () throws IllegalArgumentException {
+		final Deque<Object> containers = new ArrayDeque<>();
+		final Deque<String> keys = new ArrayDeque<>();
+
+		while (true) {
+			Object value;
+			switch (this.nextNonWhitespace()) {
+				case '[':
+					this.position += 1;
+					if (this.nextNonWhitespace() == ']') {
+						this.position += 1;
+						value = new Object[0];
+						break;
+					}
+					if (this.primitiveArrays) {
+						final JsonNumericArray numericArray = JsonNumericArray.scan(this.text, this.position, this.limit);
+						if (numericArray != null) {
+							this.position = numericArray.end();
+							value = numericArray.toArray();
+							break;
+						}
+					}
+					containers.push(new ArrayList<>());
+					continue;
+				case '{':
+					this.position += 1;
+					if (this.nextNonWhitespace() == '}') {
+						this.position += 1;
+						value = new JsonShapedMap(this.shapes);
+						break;
+					}
+					containers.push(new JsonShapedMap(this.shapes));
+					keys.push(this.parseKey());
+					continue;
+				case '"': case '\'':
+					value = this.parseString();
+					break;
+				default:
+					value = this.parseLiteral();
+					break;
+			}
+
+			// attach the completed value to it's enclosing containers, closing these as required
+			while (true) {
+				if (containers.isEmpty()) return value;
+				final Object container = containers.peek();
+
+				if (container instanceof List) {
+					final List<Object> list = (List<Object>) container;
+					list.add(value);
+
+					final char delimiter = this.nextNonWhitespace();
+					this.position += 1;
+					if (delimiter == ',' && this.nextNonWhitespace() != ']') break;
+					if (delimiter == ',') this.position += 1;
+					else if (delimiter != ']') throw this.exception(this.position - 1);
+
+					containers.pop();
+					value = list.toArray();
+				} else {
+					final JsonShapedMap map = (JsonShapedMap) container;
+					map.put(keys.pop(), value);
+
+					final char delimiter = this.nextNonWhitespace();
+					this.position += 1;
+					if (delimiter == ',' && this.nextNonWhitespace() != '}') {
+						keys.push(this.parseKey());
+						break;
+					}
+					if (delimiter == ',') this.position += 1;
+					else if (delimiter != '}') throw this.exception(this.position - 1);
+
+					containers.pop();
+					value = map.trim();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Parses a map key starting at the current cursor position, including the subsequent colon.
+	 * @return the key
+	 * @throws IllegalArgumentException if the text does not contain a valid key
+	 */
+	private String parseKey () throws IllegalArgumentException {
+		final char delimiter = this.nextNonWhitespace();
+		if (delimiter != '"' & delimiter != '\'') throw this.exception();
+
+		final String key = this.parseString();
+		if (this.nextNonWhitespace() != ':') throw this.exception();
+		this.position += 1;
+		return key;
+	}
+
+
+	/**
+	 * Parses a string starting at the current cursor position, which must
+	 * contain either a double or a single quote.
+	 * @return the string
+	 * @throws IllegalArgumentException if the text does not contain a valid string
+	 */
+	private String parseString () throws IllegalArgumentException {
+		final char delimiter = this.text.charAt(this.position);
+		final int begin = this.position + 1;
+
+		boolean escaped = false;
+		for (int index = begin; index < this.limit; ++index) {
+			final char character = this.text.charAt(index);
+			if (character == '\\') {
+				escaped = true;
+				index += 1;
+			} else if (character == delimiter) {
+				this.position = index + 1;
+				return escaped ? JsonEscapes.unescape(this.text, begin, index) : this.text.subSequence(begin, index).toString();
+			}
+		}
+
+		throw this.exception(begin - 1);
+	}
+
+
+	/**
+	 * Parses an unquoted literal starting at the current cursor position, i.e.
+	 * a number, a boolean, or a void value.
+	 * @return the literal value, either {@code null}, or an instance of Boolean or Number (Long or Double)
+	 * @throws IllegalArgumentException if the text does not contain a valid literal
+	 */
+	private Object parseLiteral () throws IllegalArgumentException {
+		final int begin = this.position;
+		while (this.position < this.limit && !isDelimiter(this.text.charAt(this.position))) this.position += 1;
+		if (this.position == begin) throw this.exception();
+
+		try {
+			return literal(this.text, begin, this.position, this.lazyNumbers);
+		} catch (final IllegalArgumentException e) {
+			throw this.exception(begin);
+		}
+	}
+
+
+	/**
+	 * Advances the cursor to the next non-whitespace character, and returns it without consuming it.
+	 * @return the character at the cursor position
+	 * @throws IllegalArgumentException if the end of the text range has been reached
+	 */
+	private char nextNonWhitespace () throws IllegalArgumentException {
+		this.skipWhitespace();
+		if (this.position >= this.limit) throw this.exception();
+		return this.text.charAt(this.position);
+	}
+
+
+	/**
+	 * Advances the cursor beyond any whitespace.
+	 */
+	private void skipWhitespace () {
+		while (this.position < this.limit && Character.isWhitespace(this.text.charAt(this.position))) this.position += 1;
+	}
+
+
+	/**
+	 * Returns a new exception for the current cursor position.
+	 * @return the exception created
+	 */
+	private IllegalArgumentException exception () {
+		return this.exception(this.position);
+	}
+
+
+	/**
+	 * Returns a new exception for the given position.
+	 * @param position the position
+	 * @return the exception created
+	 */
+	private IllegalArgumentException exception (final int position) {
+		return new IllegalArgumentException("invalid JSON at position " + position);
+	}
+
+
+	/**
+	 * Returns the value of the given unquoted literal range, i.e. a number, a boolean, or a void value.
+	 * Numbers are scanned in a single pass using {@link JsonNumber#scan}, without relying on exceptions.
+	 * @param text the text
+	 * @param begin the literal begin position (inclusive)
+	 * @param end the literal end position (exclusive)
+	 * @param lazyNumbers whether or not numbers shall be returned as lazily parsed numbers
+	 * @return the literal value, either {@code null}, or an instance of Boolean or Number
+	 * @throws NullPointerException if the given text is {@code null}
+	 * @throws IndexOutOfBoundsException if the given range is out of bounds
+	 * @throws IllegalArgumentException if the given range does not contain a valid literal
+	 */
+	static Object literal (final CharSequence text, final int begin, final int end, final boolean lazyNumbers) throws NullPointerException, IndexOutOfBoundsException, IllegalArgumentException {
+		if (begin >= end) throw new IllegalArgumentException();
+
+		switch (text.charAt(begin)) {
+			case 'n':
+				if (JsonNumber.matches(text, begin, end, "null")) return null;
+				break;
+			case 'u':
+				if (JsonNumber.matches(text, begin, end, "undefined")) return null;
+				break;
+			case 't':
+				if (JsonNumber.matches(text, begin, end, "true")) return Boolean.TRUE;
+				break;
+			case 'f':
+				if (JsonNumber.matches(text, begin, end, "false")) return Boolean.FALSE;
+				break;
+			default:
+				final Number number = JsonNumber.scan(text, begin, end, lazyNumbers);
+				if (number != null) return number;
+				break;
+		}
+
+		throw new IllegalArgumentException(text.subSequence(begin, end).toString());
+	}
+
+
+	/**
+	 * Returns whether or not the given character terminates an unquoted literal.
+	 * @param character the character
+	 * @return {@code true} if the character is a delimiter, {@code false} otherwise
+	 */
+	static private boolean isDelimiter (final char character) {
+		return character == ',' | character == ':' | character == ']' | character == '}' | character == '[' | character == '{' | Character.isWhitespace(character);
+	}
+}
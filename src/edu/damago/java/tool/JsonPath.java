@@ -0,0 +1,243 @@
+package edu.damago.java.tool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+
+/**
+ * Instances of this class represent compiled JSONPath queries that are evaluated while
+ * streaming a JSON representation. Subtrees that cannot match are skipped by delimiter
+ * scanning without materializing them, and only matching values are materialized and passed
+ * to a callback. The following subset of JSONPath is supported: the root {@code $}, member
+ * selectors {@code .name} and {@code ['name']}, index selectors {@code [n]}, and the wildcard
+ * selectors {@code .*} and {@code [*]}; for example {@code $.rows[*].population}. Queries
+ * without wildcards stop reading as soon as their single match has been emitted. Note that
+ * instances are immutable, and can therefore be shared between threads.
+ * @author Sascha Baumeister
+ */
+public class JsonPath {
+	private final String expression;
+	private final String[] names;
+	private final int[] indices;
+	private final boolean definite;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param expression the query expression
+	 * @param names the member names per segment, or {@code null} for index and wildcard segments
+	 * @param indices the array indices per segment, or {@code -1} for member and wildcard segments
+	 */
+	private JsonPath (final String expression, final String[] names, final int[] indices) {
+		boolean definite = true;
+		for (int segment = 0; segment < names.length; ++segment)
+			definite &= names[segment] != null | indices[segment] != -1;
+
+		this.expression = expression;
+		this.names = names;
+		this.indices = indices;
+		this.definite = definite;
+	}
+
+
+	/**
+	 * Returns a new query compiled from the given JSONPath expression.
+	 * @param expression the query expression
+	 * @return the compiled query
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given expression is invalid or unsupported
+	 */
+	static public JsonPath compile (final String expression) throws NullPointerException, IllegalArgumentException {
+		if (!expression.startsWith("$")) throw new IllegalArgumentException("missing root: " + expression);
+
+		final List<String> names = new ArrayList<>();
+		final List<Integer> indices = new ArrayList<>();
+		for (int position = 1; position < expression.length(); ) {
+			final char character = expression.charAt(position);
+			if (character == '.') {
+				final int begin = position + 1;
+				position = begin;
+				while (position < expression.length() && expression.charAt(position) != '.' & expression.charAt(position) != '[') position += 1;
+				if (position == begin) throw new IllegalArgumentException("empty member name: " + expression);
+
+				final String name = expression.substring(begin, position);
+				names.add(name.equals("*") ? null : name);
+				indices.add(-1);
+			} else if (character == '[') {
+				final int end = expression.indexOf(']', position);
+				if (end == -1) throw new IllegalArgumentException("unterminated selector: " + expression);
+
+				final String selector = expression.substring(position + 1, end).trim();
+				if (selector.equals("*")) {
+					names.add(null);
+					indices.add(-1);
+				} else if (selector.length() >= 2 && (selector.charAt(0) == '\'' | selector.charAt(0) == '"') && selector.charAt(selector.length() - 1) == selector.charAt(0)) {
+					names.add(JsonEscapes.unescape(selector, 1, selector.length() - 1));
+					indices.add(-1);
+				} else {
+					try {
+						final int index = Integer.parseInt(selector);
+						if (index < 0) throw new IllegalArgumentException("negative index: " + expression);
+						names.add(null);
+						indices.add(index);
+					} catch (final NumberFormatException e) {
+						throw new IllegalArgumentException("invalid selector: " + expression);
+					}
+				}
+				position = end + 1;
+			} else {
+				throw new IllegalArgumentException("invalid selector: " + expression);
+			}
+		}
+
+		return new JsonPath(expression, names.toArray(new String[0]), indices.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+
+	/**
+	 * Passes all values matching this query to the given callback, in document order.
+	 * @param json the JSON representation
+	 * @param callback the callback receiving the matching values, either {@code null}, or
+	 *        instances of Boolean, Number (Long or Double), String, Map&lt;String,Object&gt;, or Object[]
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the JSON representation is invalid
+	 */
+	public void extract (final CharSequence json, final Consumer<Object> callback) throws NullPointerException, IllegalArgumentException {
+		try {
+			this.extract(new StringReader(json.toString()), callback);
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+
+	/**
+	 * Passes all values matching this query to the given callback, in document order.
+	 * @param source the UTF-8 encoded JSON source, which is not closed
+	 * @param callback the callback receiving the matching values, either {@code null}, or
+	 *        instances of Boolean, Number (Long or Double), String, Map&lt;String,Object&gt;, or Object[]
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the JSON representation is invalid
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public void extract (final InputStream source, final Consumer<Object> callback) throws NullPointerException, IllegalArgumentException, IOException {
+		this.extract(new JsonReader(source), callback);
+	}
+
+
+	/**
+	 * Passes all values matching this query to the given callback, in document order.
+	 * @param source the JSON source, which is not closed
+	 * @param callback the callback receiving the matching values, either {@code null}, or
+	 *        instances of Boolean, Number (Long or Double), String, Map&lt;String,Object&gt;, or Object[]
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the JSON representation is invalid
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public void extract (final Reader source, final Consumer<Object> callback) throws NullPointerException, IllegalArgumentException, IOException {
+		this.extract(new JsonReader(source), callback);
+	}
+
+
+	/**
+	 * Returns all values matching this query, in document order.
+	 * @param json the JSON representation
+	 * @return the matching values
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the JSON representation is invalid
+	 */
+	public List<Object> extract (final CharSequence json) throws NullPointerException, IllegalArgumentException {
+		final List<Object> values = new ArrayList<>();
+		this.extract(json, values::add);
+		return values;
+	}
+
+
+	/**
+	 * Returns the query expression.
+	 * @return the query expression
+	 */
+	@Override
+	public String toString () {
+		return this.expression;
+	}
+
+
+	/**
+	 * Passes all values matching this query to the given callback.
+	 * @param reader the JSON reader
+	 * @param callback the callback receiving the matching values
+	 * @throws NullPointerException if the given callback is {@code null}
+	 * @throws IllegalArgumentException if the JSON representation is invalid
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void extract (final JsonReader reader, final Consumer<Object> callback) throws NullPointerException, IllegalArgumentException, IOException {
+		if (callback == null) throw new NullPointerException();
+
+		try {
+			if (!this.walk(reader, 0, callback) && reader.peek() != JsonReader.Token.END_DOCUMENT) throw new IllegalArgumentException("trailing content after JSON value");
+		} catch (final IllegalStateException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+
+	/**
+	 * Walks the next value, descending into the children selected by the given segment,
+	 * and skipping all others.
+	 * @param reader the JSON reader
+	 * @param segment the index of the segment to match the value's children against
+	 * @param callback the callback receiving the matching values
+	 * @return {@code true} if the query is definite, and it's single match has been emitted, {@code false} otherwise
+	 * @throws IllegalArgumentException if the JSON representation is invalid
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private boolean walk (final JsonReader reader, final int segment, final Consumer<Object> callback) throws IllegalArgumentException, IOException {
+		if (segment == this.names.length) {
+			callback.accept(reader.nextValue());
+			return this.definite;
+		}
+
+		final String name = this.names[segment];
+		final int index = this.indices[segment];
+		switch (reader.peek()) {
+			case BEGIN_ARRAY:
+				if (name != null) break;
+
+				reader.nextToken();
+				for (int position = 0; reader.hasNext(); ++position) {
+					if (index == -1 | index == position) {
+						if (this.walk(reader, segment + 1, callback)) return true;
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.nextToken();
+				return false;
+			case BEGIN_OBJECT:
+				if (index != -1) break;
+
+				reader.nextToken();
+				while (reader.hasNext()) {
+					final boolean matches = name == null ? reader.nextToken() == JsonReader.Token.NAME : name.equals(reader.nextName());
+					if (matches) {
+						if (this.walk(reader, segment + 1, callback)) return true;
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.nextToken();
+				return false;
+			default:
+				break;
+		}
+
+		reader.skipValue();
+		return false;
+	}
+}
@@ -0,0 +1,348 @@
+package edu.damago.java.tool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+
+/**
+ * Instances of this class parse UTF-8 encoded JSON incrementally from chunks of arbitrary size,
+ * as they arrive from network or file channels, without requiring the complete representation
+ * up front. The parser keeps it's state between chunks, including partially received strings
+ * and literals, and passes each top-level value to a callback as soon as it is complete. The
+ * input may consist of any number of top-level values separated by optional whitespace, like
+ * JSON Lines; unquoted top-level literals must be followed by whitespace or the end of input.
+ * Values are returned like those of {@link JSON#parse(String)}. Maps share their key shapes across
+ * top-level values, with the shape tree being replaced once it is exhausted, which keeps the memory
+ * retained by long-running streams bounded even if their keys vary. Note that instances are not
+ * thread-safe, and that an instance cannot be used any further once it has reported an error.
+ * @author Sascha Baumeister
+ */
+public class JsonPushParser {
+	static private final byte VALUE = 0, KEY = 1, COLON = 2, DELIMITER = 3, STRING = 4, LITERAL = 5, FAILED = 6, ENDED = 7;
+
+	private final Consumer<Object> callback;
+	private JsonShape shapes;
+	private final Deque<Object> containers;
+	private final Deque<String> keys;
+	private final StringBuilder literal;
+	private byte[] token;
+	private int tokenSize;
+	private byte state;
+	private boolean closable;
+	private boolean stringIsKey;
+	private boolean escaped;
+	private boolean escapePending;
+	private byte quote;
+	private long position;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param callback the callback receiving each completed top-level value, either {@code null}, or
+	 *        an instance of Boolean, Number (Long or Double), String, Map&lt;String,Object&gt;, or Object[]
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonPushParser (final Consumer<Object> callback) throws NullPointerException {
+		if (callback == null) throw new NullPointerException();
+
+		this.callback = callback;
+		this.shapes = new JsonShape();
+		this.containers = new ArrayDeque<>();
+		this.keys = new ArrayDeque<>();
+		this.literal = new StringBuilder();
+		this.token = new byte[64];
+		this.state = VALUE;
+	}
+
+
+	/**
+	 * Consumes the remaining bytes of the given buffer, and passes any top-level values completed
+	 * thereby to the callback. The buffer's position is advanced to it's limit.
+	 * @param chunk the next chunk of UTF-8 encoded JSON
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalStateException if the end of input has already been signaled, or if
+	 *         a previous chunk has been invalid
+	 * @throws IllegalArgumentException if the input is not valid JSON
+	 */
+	public void feed (final ByteBuffer chunk) throws NullPointerException, IllegalStateException, IllegalArgumentException {
+		if (this.state == FAILED | this.state == ENDED) throw new IllegalStateException();
+
+		try {
+			while (chunk.hasRemaining()) {
+				if (this.state == STRING) {
+					this.consumeString(chunk);
+				} else if (this.consume(chunk.get(chunk.position()))) {
+					chunk.position(chunk.position() + 1);
+					this.position += 1;
+				}
+			}
+		} catch (final IllegalArgumentException e) {
+			this.state = FAILED;
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Signals the end of input, completing any pending top-level literal.
+	 * @throws IllegalStateException if the end of input has already been signaled, or if
+	 *         a previous chunk has been invalid
+	 * @throws IllegalArgumentException if the input ends within a value
+	 */
+	public void endOfInput () throws IllegalStateException, IllegalArgumentException {
+		if (this.state == FAILED | this.state == ENDED) throw new IllegalStateException();
+
+		try {
+			if (this.state == LITERAL && this.containers.isEmpty()) this.completeLiteral();
+			if (this.state != VALUE | !this.containers.isEmpty()) throw this.exception();
+			this.state = ENDED;
+		} catch (final IllegalArgumentException e) {
+			this.state = FAILED;
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Returns whether or not the parser is currently between top-level values.
+	 * @return {@code true} if no top-level value is partially parsed, {@code false} otherwise
+	 */
+	public boolean isIdle () {
+		return (this.state == VALUE | this.state == ENDED) & this.containers.isEmpty();
+	}
+
+
+	/**
+	 * Consumes bytes of a string up to and including it's closing quote, or up to the end of the
+	 * given chunk, whatever comes first. Note that UTF-8 multi-byte sequences never contain ASCII
+	 * bytes, which allows decoding to be deferred until the string is complete.
+	 * @param chunk the chunk
+	 * @throws IllegalArgumentException if the completed string contains an invalid escape sequence
+	 */
+	private void consumeString (final ByteBuffer chunk) throws IllegalArgumentException {
+		while (chunk.hasRemaining()) {
+			final byte character = chunk.get();
+			this.position += 1;
+
+			if (this.escapePending) {
+				this.escapePending = false;
+			} else if (character == '\\') {
+				this.escapePending = true;
+				this.escaped = true;
+			} else if (character == this.quote) {
+				this.completeString();
+				return;
+			}
+
+			if (this.tokenSize == this.token.length) this.token = Arrays.copyOf(this.token, 2 * this.tokenSize);
+			this.token[this.tokenSize++] = character;
+		}
+	}
+
+
+	/**
+	 * Consumes the given byte in any state but {@code STRING}.
+	 * @param character the byte
+	 * @return {@code true} if the byte has been consumed, {@code false} if it has to be reconsidered in the new state
+	 * @throws IllegalArgumentException if the byte is not valid in the current state
+	 */
+	private boolean consume (final byte character) throws IllegalArgumentException {
+		if (this.state == LITERAL) {
+			if (!isDelimiter(character)) {
+				this.literal.append((char) (character & 0xFF));
+				return true;
+			}
+
+			this.completeLiteral();
+			return false;
+		}
+
+		if (isWhitespace(character)) return true;
+		switch (this.state) {
+			case VALUE:
+				switch (character) {
+					case '[':
+						this.containers.push(new ArrayList<>());
+						this.closable = true;
+						return true;
+					case '{':
+						this.containers.push(new JsonShapedMap(this.shapes));
+						this.state = KEY;
+						return true;
+					case '"': case '\'':
+						this.beginString(character, false);
+						return true;
+					case ']':
+						if (!this.closable || !(this.containers.peek() instanceof List)) throw this.exception();
+						this.closeContainer();
+						return true;
+					case ',': case ':': case '}':
+						throw this.exception();
+					default:
+						this.literal.setLength(0);
+						this.literal.append((char) (character & 0xFF));
+						this.state = LITERAL;
+						return true;
+				}
+			case KEY:
+				if (character == '}') {
+					this.closeContainer();
+				} else if (character == '"' | character == '\'') {
+					this.beginString(character, true);
+				} else {
+					throw this.exception();
+				}
+				return true;
+			case COLON:
+				if (character != ':') throw this.exception();
+				this.state = VALUE;
+				this.closable = false;
+				return true;
+			case DELIMITER:
+				final boolean list = this.containers.peek() instanceof List;
+				if (character == ',') {
+					this.state = list ? VALUE : KEY;
+					this.closable = true;
+				} else if (character == (list ? ']' : '}')) {
+					this.closeContainer();
+				} else {
+					throw this.exception();
+				}
+				return true;
+			default:
+				throw new AssertionError();
+		}
+	}
+
+
+	/**
+	 * Begins a new string.
+	 * @param quote the opening quote
+	 * @param key whether or not the string is a map key
+	 */
+	private void beginString (final byte quote, final boolean key) {
+		this.state = STRING;
+		this.quote = quote;
+		this.stringIsKey = key;
+		this.escaped = false;
+		this.escapePending = false;
+		this.tokenSize = 0;
+	}
+
+
+	/**
+	 * Completes the current string, decoding and unescaping it.
+	 * @throws IllegalArgumentException if the string contains an invalid escape sequence
+	 */
+	private void completeString () throws IllegalArgumentException {
+		final String text = new String(this.token, 0, this.tokenSize, StandardCharsets.UTF_8);
+		final String value;
+		try {
+			value = this.escaped ? JsonEscapes.unescape(text, 0, text.length()) : text;
+		} catch (final IllegalArgumentException e) {
+			throw this.exception();
+		}
+
+		if (this.token.length > 0x10000) this.token = new byte[64];
+		if (this.stringIsKey) {
+			this.keys.push(value);
+			this.state = COLON;
+		} else {
+			this.completeValue(value);
+		}
+	}
+
+
+	/**
+	 * Completes the current literal.
+	 * @throws IllegalArgumentException if the literal is invalid
+	 */
+	private void completeLiteral () throws IllegalArgumentException {
+		final Object value;
+		try {
+			value = JsonParser.literal(this.literal, 0, this.literal.length(), false);
+		} catch (final IllegalArgumentException e) {
+			throw this.exception(this.position - this.literal.length());
+		}
+
+		this.completeValue(value);
+	}
+
+
+	/**
+	 * Closes the innermost container, and completes it as a value.
+	 */
+	@SuppressWarnings("unchecked")
+	private void closeContainer () {
+		final Object container = this.containers.pop();
+		this.completeValue(container instanceof List ? ((List<Object>) container).toArray() : ((JsonShapedMap) container).trim());
+	}
+
+
+	/**
+	 * Attaches the given completed value to it's enclosing container, or passes
+	 * it to the callback if it is a top-level value.
+	 * @param value the value
+	 */
+	@SuppressWarnings("unchecked")
+	private void completeValue (final Object value) {
+		final Object container = this.containers.peek();
+		if (container == null) {
+			this.state = VALUE;
+			this.closable = false;
+			if (this.shapes.exhausted()) this.shapes = new JsonShape();
+			this.callback.accept(value);
+			return;
+		}
+
+		if (container instanceof JsonShapedMap) ((JsonShapedMap) container).put(this.keys.pop(), value);
+		else ((List<Object>) container).add(value);
+		this.state = DELIMITER;
+	}
+
+
+	/**
+	 * Returns a new exception for the current position.
+	 * @return the exception created
+	 */
+	private IllegalArgumentException exception () {
+		return this.exception(this.position);
+	}
+
+
+	/**
+	 * Returns a new exception for the given position.
+	 * @param position the position
+	 * @return the exception created
+	 */
+	private IllegalArgumentException exception (final long position) {
+		return new IllegalArgumentException("invalid JSON at byte position " + position);
+	}
+
+
+	/**
+	 * Returns whether or not the given byte represents ASCII whitespace,
+	 * as defined by {@link Character#isWhitespace(char)}.
+	 * @param character the byte
+	 * @return {@code true} if the byte is whitespace, {@code false} otherwise
+	 */
+	static private boolean isWhitespace (final byte character) {
+		return character == ' ' | (character >= 0x09 & character <= 0x0D) | (character >= 0x1C & character <= 0x1F);
+	}
+
+
+	/**
+	 * Returns whether or not the given byte terminates an unquoted literal.
+	 * @param character the byte
+	 * @return {@code true} if the byte is a delimiter, {@code false} otherwise
+	 */
+	static private boolean isDelimiter (final byte character) {
+		return character == ',' | character == ':' | character == ']' | character == '}' | character == '[' | character == '{' | isWhitespace(character);
+	}
+}
@@ -0,0 +1,593 @@
+package edu.damago.java.tool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Instances of this class read JSON documents as a sequence of tokens (pull parsing), using
+ * constant memory regardless of the document size. Values are only materialized when requested
+ * by one of the typed getters, and complete subtrees can be skipped without materializing them.
+ * Note that instances are not thread-safe.
+ * @author Sascha Baumeister
+ */
+public class JsonReader implements Closeable {
+	static public enum Token { BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+	static private final byte EMPTY_DOCUMENT = 0, NONEMPTY_DOCUMENT = 1, EMPTY_ARRAY = 2, NONEMPTY_ARRAY = 3, EMPTY_OBJECT = 4, NONEMPTY_OBJECT = 5, DANGLING_NAME = 6;
+	static private final int BUFFER_SIZE = 0x2000;
+
+	private final Reader source;
+	private final char[] buffer;
+	private int bufferPosition, bufferLimit;
+	private long position;
+	private byte[] scopes;
+	private int depth;
+	private Token peeked;
+	private char quote;
+	private final StringBuilder literal;
+	private JsonShape shapes;
+
+
+	/**
+	 * Initializes a new instance based on the given UTF-8 encoded byte source.
+	 * @param source the byte source
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonReader (final InputStream source) throws NullPointerException {
+		this(new InputStreamReader(source, StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Initializes a new instance based on the given character source.
+	 * @param source the character source
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonReader (final Reader source) throws NullPointerException {
+		this(source, BUFFER_SIZE);
+	}
+
+
+	/**
+	 * Initializes a new instance based on the given character source and buffer size.
+	 * @param source the character source
+	 * @param bufferSize the buffer size
+	 * @throws NullPointerException if the given source is {@code null}
+	 * @throws IllegalArgumentException if the given buffer size is not positive
+	 */
+	JsonReader (final Reader source, final int bufferSize) throws NullPointerException, IllegalArgumentException {
+		if (source == null) throw new NullPointerException();
+		if (bufferSize <= 0) throw new IllegalArgumentException(String.valueOf(bufferSize));
+
+		this.source = source;
+		this.buffer = new char[Math.min(bufferSize, BUFFER_SIZE)];
+		this.scopes = new byte[16];
+		this.scopes[this.depth++] = EMPTY_DOCUMENT;
+		this.literal = new StringBuilder();
+	}
+
+
+	/**
+	 * Returns the type of the next token without consuming it.
+	 * @return the next token type
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public Token peek () throws IllegalArgumentException, IOException {
+		if (this.peeked != null) return this.peeked;
+
+		int character = this.nextNonWhitespace();
+		switch (this.scopes[this.depth - 1]) {
+			case NONEMPTY_DOCUMENT:
+				if (character != -1) throw this.exception();
+				return this.peeked = Token.END_DOCUMENT;
+			case EMPTY_ARRAY:
+				if (character == ']') return this.consume(Token.END_ARRAY);
+				break;
+			case NONEMPTY_ARRAY:
+				if (character == ']') return this.consume(Token.END_ARRAY);
+				if (character != ',') throw this.exception();
+				this.consume(null);
+				if ((character = this.nextNonWhitespace()) == ']') return this.consume(Token.END_ARRAY);
+				break;
+			case EMPTY_OBJECT: case NONEMPTY_OBJECT:
+				if (character == '}') return this.consume(Token.END_OBJECT);
+				if (this.scopes[this.depth - 1] == NONEMPTY_OBJECT) {
+					if (character != ',') throw this.exception();
+					this.consume(null);
+					if ((character = this.nextNonWhitespace()) == '}') return this.consume(Token.END_OBJECT);
+				}
+				if (character != '"' & character != '\'') throw this.exception();
+				this.quote = (char) character;
+				return this.consume(Token.NAME);
+			case DANGLING_NAME:
+				if (character != ':') throw this.exception();
+				this.consume(null);
+				character = this.nextNonWhitespace();
+				break;
+			default:
+				break;
+		}
+
+		switch (character) {
+			case -1: case ',': case ':': case ']': case '}':
+				throw this.exception();
+			case '[':
+				return this.consume(Token.BEGIN_ARRAY);
+			case '{':
+				return this.consume(Token.BEGIN_OBJECT);
+			case '"': case '\'':
+				this.quote = (char) character;
+				return this.consume(Token.STRING);
+			case 't': case 'f':
+				return this.peeked = Token.BOOLEAN;
+			case 'n': case 'u':
+				return this.peeked = Token.NULL;
+			default:
+				return this.peeked = Token.NUMBER;
+		}
+	}
+
+
+	/**
+	 * Returns whether or not the current array or map contains another element.
+	 * @return {@code true} if there is another element, {@code false} otherwise
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public boolean hasNext () throws IllegalArgumentException, IOException {
+		final Token token = this.peek();
+		return token != Token.END_ARRAY & token != Token.END_OBJECT & token != Token.END_DOCUMENT;
+	}
+
+
+	/**
+	 * Consumes the next token of any type, and returns it's type.
+	 * Any text associated with the token is discarded.
+	 * @return the token type
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public Token nextToken () throws IllegalArgumentException, IOException {
+		final Token token = this.peek();
+		this.peeked = null;
+
+		switch (token) {
+			case BEGIN_ARRAY:
+				this.beforeValue();
+				this.push(EMPTY_ARRAY);
+				break;
+			case BEGIN_OBJECT:
+				this.beforeValue();
+				this.push(EMPTY_OBJECT);
+				break;
+			case END_ARRAY: case END_OBJECT:
+				this.depth -= 1;
+				break;
+			case NAME:
+				this.skipString();
+				this.scopes[this.depth - 1] = DANGLING_NAME;
+				break;
+			case STRING:
+				this.beforeValue();
+				this.skipString();
+				break;
+			case NUMBER: case BOOLEAN: case NULL:
+				this.beforeValue();
+				this.readLiteral();
+				break;
+			default:
+				break;
+		}
+
+		return token;
+	}
+
+
+	/**
+	 * Skips the next value, including all of it's constituents, without materializing it.
+	 * If the next token is a map key, the key and it's associated value are skipped. Arrays
+	 * and maps are skipped by scanning for their closing delimiter, which only considers strings
+	 * and bracket nesting; their content is therefore not validated any further.
+	 * @throws IllegalStateException if the next token does not start a value
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public void skipValue () throws IllegalStateException, IllegalArgumentException, IOException {
+		if (this.peek() == Token.NAME) this.nextToken();
+		final Token token = this.peek();
+		if (token == Token.END_ARRAY | token == Token.END_OBJECT | token == Token.END_DOCUMENT) throw new IllegalStateException();
+
+		this.nextToken();
+		if (token != Token.BEGIN_ARRAY & token != Token.BEGIN_OBJECT) return;
+
+		for (int nesting = 1; nesting > 0; ) {
+			final int character = this.read();
+			switch (character) {
+				case -1:
+					throw this.exception();
+				case '"': case '\'':
+					this.quote = (char) character;
+					this.skipString();
+					break;
+				case '[': case '{':
+					nesting += 1;
+					break;
+				case ']': case '}':
+					nesting -= 1;
+					break;
+				default:
+					break;
+			}
+		}
+
+		this.depth -= 1;
+	}
+
+
+	/**
+	 * Consumes the next token, which must be a map key, and returns it.
+	 * @return the key
+	 * @throws IllegalStateException if the next token is not a map key
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public String nextName () throws IllegalStateException, IllegalArgumentException, IOException {
+		this.expect(Token.NAME);
+		final String name = this.readString();
+		this.scopes[this.depth - 1] = DANGLING_NAME;
+		return name;
+	}
+
+
+	/**
+	 * Consumes the next token, which must be a string, and returns it.
+	 * @return the string
+	 * @throws IllegalStateException if the next token is not a string
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public String nextString () throws IllegalStateException, IllegalArgumentException, IOException {
+		this.expect(Token.STRING);
+		this.beforeValue();
+		return this.readString();
+	}
+
+
+	/**
+	 * Consumes the next token, which must be a number, and returns it.
+	 * @return the number, either of type {@code Long} or {@code Double}
+	 * @throws IllegalStateException if the next token is not a number
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public Number nextNumber () throws IllegalStateException, IllegalArgumentException, IOException {
+		this.expect(Token.NUMBER);
+		this.beforeValue();
+
+		return this.readNumber();
+	}
+
+
+	/**
+	 * Consumes the next token, which must be an integral number, and returns it.
+	 * @return the number
+	 * @throws IllegalStateException if the next token is not a number
+	 * @throws IllegalArgumentException if the source does not contain valid JSON,
+	 *         or if the number is not integral
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public long nextLong () throws IllegalStateException, IllegalArgumentException, IOException {
+		this.expect(Token.NUMBER);
+		this.beforeValue();
+		final Number number = this.readNumber();
+		if (!(number instanceof Long)) throw new IllegalArgumentException("not an integral number: " + number);
+		return number.longValue();
+	}
+
+
+	/**
+	 * Consumes the next token, which must be a number, and returns it.
+	 * @return the number
+	 * @throws IllegalStateException if the next token is not a number
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public double nextDouble () throws IllegalStateException, IllegalArgumentException, IOException {
+		this.expect(Token.NUMBER);
+		this.beforeValue();
+		return this.readNumber().doubleValue();
+	}
+
+
+	/**
+	 * Consumes the next token, which must be a boolean, and returns it.
+	 * @return the boolean value
+	 * @throws IllegalStateException if the next token is not a boolean
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public boolean nextBoolean () throws IllegalStateException, IllegalArgumentException, IOException {
+		this.expect(Token.BOOLEAN);
+		this.beforeValue();
+
+		final StringBuilder text = this.readLiteral();
+		if (JsonNumber.matches(text, 0, text.length(), "true")) return true;
+		if (JsonNumber.matches(text, 0, text.length(), "false")) return false;
+		throw this.exception();
+	}
+
+
+	/**
+	 * Consumes the next token, which must be a void value.
+	 * @throws IllegalStateException if the next token is not a void value
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public void nextNull () throws IllegalStateException, IllegalArgumentException, IOException {
+		this.expect(Token.NULL);
+		this.beforeValue();
+
+		final StringBuilder text = this.readLiteral();
+		if (!JsonNumber.matches(text, 0, text.length(), "null") & !JsonNumber.matches(text, 0, text.length(), "undefined")) throw this.exception();
+	}
+
+
+	/**
+	 * Consumes the next value, and returns it materialized in the same way as {@link JSON#parse(String)}.
+	 * @return the value, either {@code null}, or an instance of Boolean, Number (Long or Double),
+	 *         String, Map&lt;String,Object&gt;, or Object[]
+	 * @throws IllegalStateException if the next token does not start a value
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public Object nextValue () throws IllegalStateException, IllegalArgumentException, IOException {
+		switch (this.peek()) {
+			case BEGIN_ARRAY: {
+				this.nextToken();
+				final List<Object> list = new ArrayList<>();
+				while (this.hasNext())
+					list.add(this.nextValue());
+				this.nextToken();
+				return list.toArray();
+			}
+			case BEGIN_OBJECT: {
+				this.nextToken();
+				if (this.shapes == null) this.shapes = new JsonShape();
+				final JsonShapedMap map = new JsonShapedMap(this.shapes);
+				while (this.hasNext())
+					map.put(this.nextName(), this.nextValue());
+				this.nextToken();
+				return map.trim();
+			}
+			case STRING:
+				return this.nextString();
+			case NUMBER:
+				return this.nextNumber();
+			case BOOLEAN:
+				return this.nextBoolean();
+			case NULL:
+				this.nextNull();
+				return null;
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+
+	/**
+	 * Returns the number of characters consumed so far.
+	 * @return the character position
+	 */
+	long position () {
+		return this.position;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close () throws IOException {
+		this.source.close();
+	}
+
+
+	/**
+	 * Ensures the next token is of the given type, and clears the peeked token.
+	 * @param type the expected token type
+	 * @throws IllegalStateException if the next token is not of the given type
+	 * @throws IllegalArgumentException if the source does not contain valid JSON
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void expect (final Token type) throws IllegalStateException, IllegalArgumentException, IOException {
+		if (this.peek() != type) throw new IllegalStateException("expected " + type + " but was " + this.peeked);
+		this.peeked = null;
+	}
+
+
+	/**
+	 * Marks the current scope as containing a value.
+	 */
+	private void beforeValue () {
+		switch (this.scopes[this.depth - 1]) {
+			case EMPTY_DOCUMENT:
+				this.scopes[this.depth - 1] = NONEMPTY_DOCUMENT;
+				break;
+			case EMPTY_ARRAY:
+				this.scopes[this.depth - 1] = NONEMPTY_ARRAY;
+				break;
+			case DANGLING_NAME:
+				this.scopes[this.depth - 1] = NONEMPTY_OBJECT;
+				break;
+			default:
+				break;
+		}
+	}
+
+
+	/**
+	 * Pushes the given scope onto the scope stack.
+	 * @param scope the scope
+	 */
+	private void push (final byte scope) {
+		if (this.depth == this.scopes.length) this.scopes = Arrays.copyOf(this.scopes, 2 * this.depth);
+		this.scopes[this.depth++] = scope;
+	}
+
+
+	/**
+	 * Consumes the buffered character at the current position, and
+	 * registers the given token type as the peeked one.
+	 * @param token the token type, or {@code null} for none
+	 * @return the given token type
+	 */
+	private Token consume (final Token token) {
+		this.bufferPosition += 1;
+		this.position += 1;
+		return this.peeked = token;
+	}
+
+
+	/**
+	 * Reads the remainder of a string whose opening quote has already been consumed.
+	 * @return the string
+	 * @throws IllegalArgumentException if the string is not terminated
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private String readString () throws IllegalArgumentException, IOException {
+		final StringBuilder builder = this.literal;
+		builder.setLength(0);
+
+		while (true) {
+			final int character = this.read();
+			if (character == -1) throw this.exception();
+			if (character == this.quote) return builder.toString();
+
+			if (character == '\\') {
+				final int escaped = this.read();
+				if (escaped == -1) throw this.exception();
+
+				if (escaped == 'u') {
+					final int digit3 = this.read(), digit2 = this.read(), digit1 = this.read(), digit0 = this.read();
+					if (digit0 == -1) throw this.exception();
+					builder.append(JsonEscapes.hexCharacter((char) digit3, (char) digit2, (char) digit1, (char) digit0));
+				} else {
+					final int unescaped = JsonEscapes.unescape((char) escaped);
+					if (unescaped == -1) builder.append('\\').append((char) escaped);
+					else builder.append((char) unescaped);
+				}
+			} else {
+				builder.append((char) character);
+			}
+		}
+	}
+
+
+	/**
+	 * Skips the remainder of a string whose opening quote has already been consumed.
+	 * @throws IllegalArgumentException if the string is not terminated
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void skipString () throws IllegalArgumentException, IOException {
+		for (int character = this.read(); character != this.quote; character = this.read()) {
+			if (character == '\\') character = this.read();
+			if (character == -1) throw this.exception();
+		}
+	}
+
+
+	/**
+	 * Reads an unquoted number literal, and scans it without relying on exceptions.
+	 * @return the number, either of type {@code Long} or {@code Double}
+	 * @throws IllegalArgumentException if the literal is not a valid number
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private Number readNumber () throws IllegalArgumentException, IOException {
+		final StringBuilder text = this.readLiteral();
+		final Number number = JsonNumber.scan(text, 0, text.length(), false);
+		if (number == null) throw this.exception();
+		return number;
+	}
+
+
+	/**
+	 * Reads an unquoted literal, i.e. a number, a boolean, or a void value.
+	 * Note that the literal buffer returned is reused by subsequent operations.
+	 * @return the literal buffer
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private StringBuilder readLiteral () throws IOException {
+		final StringBuilder builder = this.literal;
+		builder.setLength(0);
+
+		while (true) {
+			if (this.bufferPosition == this.bufferLimit && !this.fill()) break;
+			final char character = this.buffer[this.bufferPosition];
+			if (character == ',' | character == ':' | character == ']' | character == '}' | character == '[' | character == '{' | Character.isWhitespace(character)) break;
+
+			builder.append(character);
+			this.consume(null);
+		}
+
+		return builder;
+	}
+
+
+	/**
+	 * Skips whitespace, and returns the next character without consuming it.
+	 * @return the next character, or {@code -1} for end of input
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private int nextNonWhitespace () throws IOException {
+		while (true) {
+			if (this.bufferPosition == this.bufferLimit && !this.fill()) return -1;
+			final char character = this.buffer[this.bufferPosition];
+			if (!Character.isWhitespace(character)) return character;
+			this.consume(null);
+		}
+	}
+
+
+	/**
+	 * Consumes and returns the next character.
+	 * @return the next character, or {@code -1} for end of input
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private int read () throws IOException {
+		if (this.bufferPosition == this.bufferLimit && !this.fill()) return -1;
+
+		this.position += 1;
+		return this.buffer[this.bufferPosition++];
+	}
+
+
+	/**
+	 * Refills the buffer from the source.
+	 * @return {@code true} if characters have been read, {@code false} for end of input
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private boolean fill () throws IOException {
+		final int count = this.source.read(this.buffer, 0, this.buffer.length);
+		this.bufferPosition = 0;
+		this.bufferLimit = Math.max(count, 0);
+		return count > 0;
+	}
+
+
+	/**
+	 * Returns a new exception for the current position.
+	 * @return the exception created
+	 */
+	private IllegalArgumentException exception () {
+		return new IllegalArgumentException("invalid JSON at position " + this.position);
+	}
+}
@@ -0,0 +1,401 @@
+package edu.damago.java.tool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Instances of this class represent compiled JSON schemas that validate JSON representations
+ * while streaming them, rejecting them at the first violation without materializing any arrays,
+ * maps or strings. Schemas are compiled from the following subset of JSON Schema: {@code type}
+ * (one of, or an array of, {@code "object"}, {@code "array"}, {@code "string"}, {@code "number"},
+ * {@code "integer"}, {@code "boolean"} and {@code "null"}), {@code properties}, {@code required},
+ * {@code additionalProperties} (a boolean), and {@code items} (a single schema); any other keywords
+ * are ignored. Validation checks the document structure, and the literals of numbers, booleans and
+ * void values; string contents including their escape sequences are skipped without decoding,
+ * and subtrees which are not constrained by the schema are skipped by delimiter scanning. Therefore
+ * neither is validated any further, which means that documents accepted are not necessarily valid
+ * JSON in every detail. Note that instances are immutable, and can therefore be shared between threads.
+ * @author Sascha Baumeister
+ */
+public class JsonSchema {
+	static private final int OBJECT = 0x01, ARRAY = 0x02, STRING = 0x04, NUMBER = 0x08, INTEGER = 0x10, BOOLEAN = 0x20, NULL = 0x40, ANY = 0x7F;
+	static private final String[] TYPE_NAMES = { "object", "array", "string", "number", "integer", "boolean", "null" };
+	static private final JsonSchema UNCONSTRAINED = new JsonSchema(ANY, null, new String[0], true, null);
+
+	private final int types;
+	private final Map<String,Property> properties;
+	private final String[] requiredNames;
+	private final long requiredMask;
+	private final boolean additionalProperties;
+	private final JsonSchema items;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param types the permitted types as a bit mask
+	 * @param properties the property schemas, or {@code null} for none
+	 * @param requiredNames the names of the required properties
+	 * @param additionalProperties whether or not properties without schema are permitted
+	 * @param items the item schema, or {@code null} for none
+	 */
+	private JsonSchema (final int types, final Map<String,JsonSchema> properties, final String[] requiredNames, final boolean additionalProperties, final JsonSchema items) {
+		final Map<String,Property> members = new HashMap<>();
+		if (properties != null)
+			for (final Map.Entry<String,JsonSchema> entry : properties.entrySet())
+				members.put(entry.getKey(), new Property(entry.getValue(), 0L));
+		for (int index = 0; index < requiredNames.length; ++index) {
+			final Property property = members.get(requiredNames[index]);
+			members.put(requiredNames[index], new Property(property == null ? UNCONSTRAINED : property.schema, 1L << index));
+		}
+
+		this.types = types;
+		this.properties = members;
+		this.requiredNames = requiredNames;
+		this.requiredMask = requiredNames.length == 64 ? -1L : (1L << requiredNames.length) - 1;
+		this.additionalProperties = additionalProperties;
+		this.items = items;
+	}
+
+
+	/**
+	 * Returns a new validator compiled from the given JSON Schema representation.
+	 * @param schema the JSON Schema representation
+	 * @return the compiled schema
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given schema is invalid or unsupported
+	 */
+	static public JsonSchema compile (final String schema) throws NullPointerException, IllegalArgumentException {
+		final Object value = JSON.parse(schema);
+		return compile(value);
+	}
+
+
+	/**
+	 * Returns a new validator compiled from the given JSON Schema, parsed as by {@link JSON#parse(String)}.
+	 * @param schema the JSON Schema map, or a boolean
+	 * @return the compiled schema
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given schema is invalid or unsupported
+	 */
+	static public JsonSchema compile (final Object schema) throws NullPointerException, IllegalArgumentException {
+		if (schema == null) throw new NullPointerException();
+		if (Boolean.TRUE.equals(schema)) return UNCONSTRAINED;
+		if (!(schema instanceof Map)) throw new IllegalArgumentException("invalid schema: " + JSON.stringify(schema));
+		final Map<?,?> map = (Map<?,?>) schema;
+
+		int types = ANY;
+		final Object type = map.get("type");
+		if (type != null) {
+			types = 0;
+			for (final Object name : type instanceof Object[] ? (Object[]) type : new Object[] { type })
+				types |= type(name);
+		}
+
+		Map<String,JsonSchema> properties = null;
+		final Object propertySchemas = map.get("properties");
+		if (propertySchemas != null) {
+			if (!(propertySchemas instanceof Map)) throw new IllegalArgumentException("invalid properties: " + JSON.stringify(propertySchemas));
+			properties = new HashMap<>();
+			for (final Map.Entry<?,?> entry : ((Map<?,?>) propertySchemas).entrySet())
+				properties.put(entry.getKey().toString(), compile(entry.getValue()));
+		}
+
+		String[] requiredNames = new String[0];
+		final Object required = map.get("required");
+		if (required != null) {
+			if (!(required instanceof Object[])) throw new IllegalArgumentException("invalid required: " + JSON.stringify(required));
+			final Set<String> names = new LinkedHashSet<>();
+			for (final Object name : (Object[]) required) {
+				if (!(name instanceof String)) throw new IllegalArgumentException("invalid required: " + JSON.stringify(required));
+				names.add((String) name);
+			}
+
+			if (names.size() > 64) throw new IllegalArgumentException("too many required properties: " + names.size());
+			requiredNames = names.toArray(new String[0]);
+		}
+
+		final Object additionalProperties = map.containsKey("additionalProperties") ? map.get("additionalProperties") : Boolean.TRUE;
+		if (!(additionalProperties instanceof Boolean)) throw new IllegalArgumentException("unsupported additionalProperties: " + JSON.stringify(additionalProperties));
+
+		final Object items = map.get("items");
+		return new JsonSchema(types, properties, requiredNames, (Boolean) additionalProperties, items == null ? null : compile(items));
+	}
+
+
+	/**
+	 * Returns whether or not the given JSON representation conforms to this schema.
+	 * @param json the JSON representation
+	 * @return {@code true} if the representation conforms to this schema, {@code false} otherwise
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public boolean isValid (final CharSequence json) throws NullPointerException {
+		try {
+			this.validate(json);
+			return true;
+		} catch (final IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Validates the given JSON representation against this schema.
+	 * @param json the JSON representation
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the JSON representation is structurally invalid, or violates this schema
+	 */
+	public void validate (final CharSequence json) throws NullPointerException, IllegalArgumentException {
+		try {
+			this.validate(new StringReader(json.toString()));
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+
+	/**
+	 * Validates the given JSON source against this schema.
+	 * @param source the UTF-8 encoded JSON source, which is not closed
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the JSON representation is structurally invalid, or violates this schema
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public void validate (final InputStream source) throws NullPointerException, IllegalArgumentException, IOException {
+		this.validate(new JsonReader(source));
+	}
+
+
+	/**
+	 * Validates the given JSON source against this schema.
+	 * @param source the JSON source, which is not closed
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the JSON representation is structurally invalid, or violates this schema
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public void validate (final Reader source) throws NullPointerException, IllegalArgumentException, IOException {
+		this.validate(new JsonReader(source));
+	}
+
+
+	/**
+	 * Validates the single JSON value provided by the given reader against this schema.
+	 * @param reader the JSON reader
+	 * @throws IllegalArgumentException if the JSON representation is structurally invalid, or violates this schema
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void validate (final JsonReader reader) throws IllegalArgumentException, IOException {
+		try {
+			this.check(reader);
+			if (reader.peek() != JsonReader.Token.END_DOCUMENT) throw new IllegalArgumentException("trailing content after JSON value");
+		} catch (final Violation violation) {
+			throw new IllegalArgumentException(violation.getMessage());
+		} catch (final IllegalStateException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+
+	/**
+	 * Consumes the next value of the given reader, and checks it against this schema.
+	 * @param reader the JSON reader
+	 * @throws Violation if the value violates this schema
+	 * @throws IllegalArgumentException if the JSON representation is invalid
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void check (final JsonReader reader) throws Violation, IllegalArgumentException, IOException {
+		if (this == UNCONSTRAINED) {
+			reader.skipValue();
+			return;
+		}
+
+		final JsonReader.Token token = reader.peek();
+		switch (token) {
+			case BEGIN_OBJECT: {
+				this.require(OBJECT, reader.position() - 1);
+				reader.nextToken();
+
+				long present = 0L;
+				while (reader.hasNext()) {
+					final long position = reader.position();
+					final String name = reader.nextName();
+					final Property property = this.properties.get(name);
+					if (property == null) {
+						if (!this.additionalProperties) throw new Violation(position, "no additional property " + JSON.stringify(name));
+						reader.skipValue();
+						continue;
+					}
+
+					try {
+						property.schema.check(reader);
+					} catch (final Violation violation) {
+						throw violation.within(name);
+					}
+					present |= property.mask;
+				}
+
+				final long position = reader.position();
+				reader.nextToken();
+				if (present != this.requiredMask) {
+					final int index = Long.numberOfTrailingZeros(~present & this.requiredMask);
+					throw new Violation(position, "required property " + JSON.stringify(this.requiredNames[index]));
+				}
+				break;
+			}
+			case BEGIN_ARRAY: {
+				this.require(ARRAY, reader.position() - 1);
+				reader.nextToken();
+
+				for (int index = 0; reader.hasNext(); ++index) {
+					if (this.items == null) {
+						reader.skipValue();
+					} else try {
+						this.items.check(reader);
+					} catch (final Violation violation) {
+						throw violation.within(index);
+					}
+				}
+
+				reader.nextToken();
+				break;
+			}
+			case STRING:
+				this.require(STRING, reader.position() - 1);
+				reader.nextToken();
+				break;
+			case NUMBER: {
+				final long position = reader.position();
+				final boolean integral = reader.nextNumber() instanceof Long;
+				if ((this.types & NUMBER) == 0 & !(integral & (this.types & INTEGER) != 0)) this.require(integral ? INTEGER : NUMBER, position);
+				break;
+			}
+			case BOOLEAN:
+				this.require(BOOLEAN, reader.position());
+				reader.nextBoolean();
+				break;
+			case NULL:
+				this.require(NULL, reader.position());
+				reader.nextNull();
+				break;
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+
+	/**
+	 * Ensures this schema permits the given type.
+	 * @param type the type
+	 * @param position the position of the value
+	 * @throws Violation if this schema does not permit the given type
+	 */
+	private void require (final int type, final long position) throws Violation {
+		if ((this.types & type) != 0) return;
+
+		final StringBuilder expectation = new StringBuilder("type ");
+		for (int index = 0; index < TYPE_NAMES.length; ++index) {
+			if ((this.types & 1 << index) == 0) continue;
+			if (expectation.length() > 5) expectation.append(" or ");
+			expectation.append(TYPE_NAMES[index]);
+		}
+		throw new Violation(position, expectation.toString());
+	}
+
+
+	/**
+	 * Returns the type mask for the given JSON Schema type name.
+	 * @param name the type name
+	 * @return the type mask
+	 * @throws IllegalArgumentException if the given name is not a supported type name
+	 */
+	static private int type (final Object name) throws IllegalArgumentException {
+		for (int index = 0; index < TYPE_NAMES.length; ++index)
+			if (TYPE_NAMES[index].equals(name)) return 1 << index;
+		throw new IllegalArgumentException("unsupported type: " + JSON.stringify(name));
+	}
+
+
+
+	/**
+	 * Instances of this class represent map property constraints.
+	 */
+	static private class Property {
+		private final JsonSchema schema;
+		private final long mask;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param schema the property schema
+		 * @param mask the property's required bit, or zero for optional properties
+		 */
+		public Property (final JsonSchema schema, final long mask) {
+			this.schema = schema;
+			this.mask = mask;
+		}
+	}
+
+
+
+	/**
+	 * Instances of this exception signal schema violations, and collect the
+	 * path of the violating value while the validation unwinds.
+	 */
+	static private class Violation extends Exception {
+		static private final long serialVersionUID = 1L;
+
+		private final long position;
+		private final String expectation;
+		private final StringBuilder path;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param position the position of the violating value
+		 * @param expectation the expectation violated
+		 */
+		public Violation (final long position, final String expectation) {
+			super(null, null, false, false);
+			this.position = position;
+			this.expectation = expectation;
+			this.path = new StringBuilder();
+		}
+
+
+		/**
+		 * Prepends the given map key to the path of the violating value.
+		 * @param name the map key
+		 * @return this violation
+		 */
+		public Violation within (final String name) {
+			this.path.insert(0, "[" + JSON.stringify(name) + "]");
+			return this;
+		}
+
+
+		/**
+		 * Prepends the given array index to the path of the violating value.
+		 * @param index the array index
+		 * @return this violation
+		 */
+		public Violation within (final int index) {
+			this.path.insert(0, "[" + index + "]");
+			return this;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String getMessage () {
+			return "JSON schema violation at position " + this.position + ", $" + this.path + ": expected " + this.expectation;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package edu.damago.java.tool;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Instances of this class represent the key sets ("shapes") of JSON maps, organized as a
+ * transition tree rooted in an empty shape. Maps with identical key sequences share the same
+ * shape instance, and therefore the same key strings and key index, while storing only their
+ * values themselves. Instances are immutable, apart from their thread-safe transition cache.
+ * Both the number of keys per shape and the number of shapes per tree are capped, which bounds
+ * the memory held by a tree regardless of it's input; maps exceeding these limits are expected
+ * to store their entries conventionally instead.
+ * @author Sascha Baumeister
+ */
+class JsonShape {
+	static private final int MAX_SCAN_SIZE = 8;
+	static private final int MAX_KEY_COUNT = 64;
+	static private final int MAX_SHAPE_COUNT = 4096;
+
+	private final JsonShape root;
+	private final String[] keys;
+	private final ConcurrentMap<String,JsonShape> transitions;
+	private final AtomicInteger shapeCount;
+	private volatile Map<String,Integer> indices;
+
+
+	/**
+	 * Initializes a new empty root shape.
+	 */
+	public JsonShape () {
+		this.root = this;
+		this.keys = new String[0];
+		this.transitions = new ConcurrentHashMap<>();
+		this.shapeCount = new AtomicInteger(1);
+	}
+
+
+	/**
+	 * Initializes a new shape extending the given parent by the given key.
+	 * @param parent the parent shape
+	 * @param key the additional key
+	 */
+	private JsonShape (final JsonShape parent, final String key) {
+		this.root = parent.root;
+		this.keys = Arrays.copyOf(parent.keys, parent.keys.length + 1);
+		this.keys[parent.keys.length] = key;
+		this.transitions = new ConcurrentHashMap<>();
+		this.shapeCount = null;
+	}
+
+
+	/**
+	 * Returns the root of this shape's transition tree.
+	 * @return the empty root shape
+	 */
+	public JsonShape root () {
+		return this.root;
+	}
+
+
+	/**
+	 * Returns whether or not this shape's tree has reached it's maximum number of shapes,
+	 * in which case no further shapes are created within it.
+	 * @return {@code true} if the tree is exhausted, {@code false} otherwise
+	 */
+	public boolean exhausted () {
+		return this.root.shapeCount.get() >= MAX_SHAPE_COUNT;
+	}
+
+
+	/**
+	 * Returns the number of keys.
+	 * @return the key count
+	 */
+	public int size () {
+		return this.keys.length;
+	}
+
+
+	/**
+	 * Returns the key at the given index.
+	 * @param index the key index
+	 * @return the key
+	 * @throws ArrayIndexOutOfBoundsException if the given index is out of range
+	 */
+	public String key (final int index) throws ArrayIndexOutOfBoundsException {
+		return this.keys[index];
+	}
+
+
+	/**
+	 * Returns the index of the given key.
+	 * @param key the key, or {@code null}
+	 * @return the key index, or {@code -1} if the key is not part of this shape
+	 */
+	public int indexOf (final Object key) {
+		if (this.keys.length <= MAX_SCAN_SIZE) {
+			for (int index = 0; index < this.keys.length; ++index)
+				if (this.keys[index].equals(key)) return index;
+			return -1;
+		}
+
+		Map<String,Integer> indices = this.indices;
+		if (indices == null) {
+			indices = new HashMap<>();
+			for (int index = 0; index < this.keys.length; ++index)
+				indices.put(this.keys[index], index);
+			this.indices = indices;
+		}
+
+		final Integer index = indices.get(key);
+		return index == null ? -1 : index;
+	}
+
+
+	/**
+	 * Returns the shape resulting from appending the given key to this shape. Cached transitions
+	 * are followed without any key lookup; otherwise the keys are scanned for duplicates, which
+	 * keeps the key index from being built for each intermediate shape while a map is filled.
+	 * @param key the key
+	 * @return this shape if it already contains the given key, otherwise the (shared) child shape,
+	 *         or {@code null} if the child would exceed the key or shape limits
+	 * @throws NullPointerException if the given key is {@code null}
+	 */
+	public JsonShape with (final String key) throws NullPointerException {
+		if (key == null) throw new NullPointerException();
+
+		final JsonShape child = this.transitions.get(key);
+		if (child != null) return child;
+		for (final String existingKey : this.keys)
+			if (existingKey.equals(key)) return this;
+		if (this.keys.length >= MAX_KEY_COUNT | this.exhausted()) return null;
+
+		return this.transitions.computeIfAbsent(key, k -> {
+			this.root.shapeCount.incrementAndGet();
+			return new JsonShape(this, k);
+		});
+	}
+
+
+	/**
+	 * Returns the shape resulting from removing the key at the given index from this shape.
+	 * @param index the key index
+	 * @return the (shared) shape lacking the given key, or {@code null} if it would exceed the shape limit
+	 * @throws ArrayIndexOutOfBoundsException if the given index is out of range
+	 */
+	public JsonShape without (final int index) throws ArrayIndexOutOfBoundsException {
+		if (index < 0 | index >= this.keys.length) throw new ArrayIndexOutOfBoundsException(index);
+
+		JsonShape shape = this.root;
+		for (int keyIndex = 0; shape != null & keyIndex < this.keys.length; ++keyIndex)
+			if (keyIndex != index) shape = shape.with(this.keys[keyIndex]);
+
+		return shape;
+	}
+}
@@ -0,0 +1,215 @@
+package edu.damago.java.tool;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Instances of this class represent compact JSON maps, storing their keys within a shared
+ * {@link JsonShape}, and their values within a plain array. Once the shape tree cannot provide
+ * a shape for their keys anymore, instances switch to storing their entries within a linked
+ * hash map instead. Iteration follows key insertion order. Note that instances are not thread-safe.
+ * @author Sascha Baumeister
+ */
+class JsonShapedMap extends AbstractMap<String,Object> {
+	static private final Object[] EMPTY = new Object[0];
+
+	private JsonShape shape;
+	private Object[] values;
+	private Map<String,Object> entries;
+
+
+	/**
+	 * Initializes a new empty instance based on the given shape tree.
+	 * @param shape any shape of the shape tree to use
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonShapedMap (final JsonShape shape) throws NullPointerException {
+		this.shape = shape.root();
+		this.values = EMPTY;
+	}
+
+
+	/**
+	 * Trims the value array to the current size.
+	 * @return this instance
+	 */
+	public JsonShapedMap trim () {
+		if (this.entries == null && this.values.length != this.shape.size()) this.values = Arrays.copyOf(this.values, this.shape.size());
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size () {
+		return this.entries == null ? this.shape.size() : this.entries.size();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey (final Object key) {
+		if (this.entries != null) return this.entries.containsKey(key);
+		return this.shape.indexOf(key) != -1;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get (final Object key) {
+		if (this.entries != null) return this.entries.get(key);
+		final int index = this.shape.indexOf(key);
+		return index == -1 ? null : this.values[index];
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 * @throws NullPointerException if the given key is {@code null}
+	 */
+	@Override
+	public Object put (final String key, final Object value) throws NullPointerException {
+		if (key == null) throw new NullPointerException();
+		if (this.entries != null) return this.entries.put(key, value);
+
+		final JsonShape shape = this.shape.with(key);
+		if (shape == null) return this.unshape().put(key, value);
+
+		final int index;
+		if (shape == this.shape) {
+			index = shape.indexOf(key);
+		} else {
+			this.shape = shape;
+			index = shape.size() - 1;
+			if (index == this.values.length) this.values = Arrays.copyOf(this.values, Math.max(4, 2 * this.values.length));
+		}
+
+		final Object result = this.values[index];
+		this.values[index] = value;
+		return result;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object remove (final Object key) {
+		if (this.entries != null) return this.entries.remove(key);
+		final int index = this.shape.indexOf(key);
+		if (index == -1) return null;
+
+		final JsonShape shape = this.shape.without(index);
+		if (shape == null) return this.unshape().remove(key);
+
+		final Object result = this.values[index];
+		final int size = this.shape.size();
+		System.arraycopy(this.values, index + 1, this.values, index, size - index - 1);
+		this.values[size - 1] = null;
+		this.shape = shape;
+		return result;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear () {
+		this.shape = this.shape.root();
+		this.values = EMPTY;
+		this.entries = null;
+	}
+
+
+	/**
+	 * Switches this map to storing it's entries within a linked hash map.
+	 * @return the entry map
+	 */
+	private Map<String,Object> unshape () {
+		final int size = this.shape.size();
+		final Map<String,Object> entries = new LinkedHashMap<>(2 * size + 2);
+		for (int index = 0; index < size; ++index)
+			entries.put(this.shape.key(index), this.values[index]);
+
+		this.shape = this.shape.root();
+		this.values = EMPTY;
+		return this.entries = entries;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Map.Entry<String,Object>> entrySet () {
+		return new AbstractSet<>() {
+			public int size () {
+				return JsonShapedMap.this.size();
+			}
+
+			public Iterator<Map.Entry<String,Object>> iterator () {
+				if (JsonShapedMap.this.entries != null) return JsonShapedMap.this.entries.entrySet().iterator();
+
+				return new Iterator<>() {
+					private int index = 0;
+					private int lastIndex = -1;
+					private Iterator<Map.Entry<String,Object>> delegate = null;
+
+					public boolean hasNext () {
+						if (this.delegate != null) return this.delegate.hasNext();
+						return this.index < JsonShapedMap.this.size();
+					}
+
+					public Map.Entry<String,Object> next () {
+						if (this.delegate != null) return this.delegate.next();
+						if (!this.hasNext()) throw new NoSuchElementException();
+
+						final JsonShape shape = JsonShapedMap.this.shape;
+						final int index = this.lastIndex = this.index++;
+						return new AbstractMap.SimpleEntry<>(shape.key(index), JsonShapedMap.this.values[index]) {
+							static private final long serialVersionUID = 1L;
+
+							public Object setValue (final Object value) {
+								if (JsonShapedMap.this.entries == null) JsonShapedMap.this.values[index] = value;
+								else JsonShapedMap.this.entries.put(this.getKey(), value);
+								return super.setValue(value);
+							}
+						};
+					}
+
+					public void remove () {
+						if (this.delegate != null) {
+							this.delegate.remove();
+							return;
+						}
+						if (this.lastIndex == -1) throw new IllegalStateException();
+
+						JsonShapedMap.this.remove(JsonShapedMap.this.shape.key(this.lastIndex));
+						this.index = this.lastIndex;
+						this.lastIndex = -1;
+
+						// continue on the entry map if the removal required switching to it
+						if (JsonShapedMap.this.entries != null) {
+							this.delegate = JsonShapedMap.this.entries.entrySet().iterator();
+							for (int index = 0; index < this.index; ++index) this.delegate.next();
+						}
+					}
+				};
+			}
+		};
+	}
+}
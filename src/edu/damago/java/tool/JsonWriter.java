@@ -0,0 +1,400 @@
+package edu.damago.java.tool;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Instances of this class emit JSON tokens directly into an underlying appendable,
+ * like a {@link java.io.Writer}, a {@link java.io.PrintStream}, or a {@link StringBuilder},
+ * without building intermediate strings. The output format is identical to the one of
+ * {@link JSON#stringify(Object)}. Note that instances are not thread-safe.
+ * @author Sascha Baumeister
+ */
+public class JsonWriter implements Flushable, Closeable {
+	static private final byte EMPTY_ARRAY = 1, NONEMPTY_ARRAY = 2, EMPTY_OBJECT = 3, NONEMPTY_OBJECT = 4, DANGLING_NAME = 5;
+
+	private final Appendable sink;
+	private byte[] scopes;
+	private int depth;
+
+
+	/**
+	 * Initializes a new instance based on the given sink.
+	 * @param sink the appendable to write into
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public JsonWriter (final Appendable sink) throws NullPointerException {
+		if (sink == null) throw new NullPointerException();
+
+		this.sink = sink;
+		this.scopes = new byte[16];
+		this.depth = 0;
+	}
+
+
+	/**
+	 * Returns the underlying sink.
+	 * @return the appendable written into
+	 */
+	public Appendable getSink () {
+		return this.sink;
+	}
+
+
+	/**
+	 * Begins a new JSON array.
+	 * @return this instance
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter beginArray () throws IllegalStateException, IOException {
+		this.beforeValue();
+		this.push(EMPTY_ARRAY);
+		this.sink.append('[');
+		return this;
+	}
+
+
+	/**
+	 * Ends the current JSON array.
+	 * @return this instance
+	 * @throws IllegalStateException if there is no open array
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter endArray () throws IllegalStateException, IOException {
+		if (this.depth == 0 || (this.scopes[this.depth - 1] != EMPTY_ARRAY & this.scopes[this.depth - 1] != NONEMPTY_ARRAY)) throw new IllegalStateException();
+
+		this.depth -= 1;
+		this.sink.append(']');
+		return this;
+	}
+
+
+	/**
+	 * Begins a new JSON map.
+	 * @return this instance
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter beginObject () throws IllegalStateException, IOException {
+		this.beforeValue();
+		this.push(EMPTY_OBJECT);
+		this.sink.append('{');
+		return this;
+	}
+
+
+	/**
+	 * Ends the current JSON map.
+	 * @return this instance
+	 * @throws IllegalStateException if there is no open map, or if it's last key lacks a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter endObject () throws IllegalStateException, IOException {
+		if (this.depth == 0 || (this.scopes[this.depth - 1] != EMPTY_OBJECT & this.scopes[this.depth - 1] != NONEMPTY_OBJECT)) throw new IllegalStateException();
+
+		this.depth -= 1;
+		this.sink.append('}');
+		return this;
+	}
+
+
+	/**
+	 * Writes the given map key.
+	 * @param key the key
+	 * @return this instance
+	 * @throws NullPointerException if the given key is {@code null}
+	 * @throws IllegalStateException if there is no open map, or if it's last key lacks a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter name (final String key) throws NullPointerException, IllegalStateException, IOException {
+		if (key == null) throw new NullPointerException();
+		if (this.depth == 0) throw new IllegalStateException();
+
+		final byte scope = this.scopes[this.depth - 1];
+		if (scope == NONEMPTY_OBJECT) this.sink.append(", ");
+		else if (scope != EMPTY_OBJECT) throw new IllegalStateException();
+
+		this.scopes[this.depth - 1] = DANGLING_NAME;
+		this.string(key);
+		this.sink.append(": ");
+		return this;
+	}
+
+
+	/**
+	 * Writes a {@code null} value.
+	 * @return this instance
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter nullValue () throws IllegalStateException, IOException {
+		this.beforeValue();
+		this.sink.append("null");
+		return this;
+	}
+
+
+	/**
+	 * Writes the given boolean value.
+	 * @param value the value
+	 * @return this instance
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter value (final boolean value) throws IllegalStateException, IOException {
+		this.beforeValue();
+		this.sink.append(value ? "true" : "false");
+		return this;
+	}
+
+
+	/**
+	 * Writes the given integral value.
+	 * @param value the value
+	 * @return this instance
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter value (final long value) throws IllegalStateException, IOException {
+		this.beforeValue();
+		this.number(value);
+		return this;
+	}
+
+
+	/**
+	 * Writes the given floating-point value.
+	 * @param value the value
+	 * @return this instance
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter value (final double value) throws IllegalStateException, IOException {
+		this.beforeValue();
+		this.number(value);
+		return this;
+	}
+
+
+	/**
+	 * Writes the given text value.
+	 * @param value the value, or {@code null}
+	 * @return this instance
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter value (final String value) throws IllegalStateException, IOException {
+		if (value == null) return this.nullValue();
+
+		this.beforeValue();
+		this.string(value);
+		return this;
+	}
+
+
+	/**
+	 * Writes the given object, including all of it's constituents. JavaBeans
+	 * are written as maps of their readable and writable properties. Primitive
+	 * arrays are written without boxing their elements, except for {@code char[]}
+	 * which is written as a string.
+	 * @param object the object, or {@code null}
+	 * @return this instance
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonWriter write (final Object object) throws IllegalStateException, IOException {
+		if (object == null | object instanceof Boolean | object instanceof Number) {
+			this.beforeValue();
+			this.sink.append(String.valueOf(object));
+			return this;
+		}
+
+		if (object instanceof Object[]) {
+			this.beginArray();
+			for (final Object element : (Object[]) object)
+				this.write(element);
+			return this.endArray();
+		}
+
+		if (object.getClass().isArray()) return this.primitiveArray(object);
+
+		if (object instanceof List) {
+			this.beginArray();
+			for (final Object element : (List<?>) object)
+				this.write(element);
+			return this.endArray();
+		}
+
+		if (object instanceof Map) {
+			this.beginObject();
+			for (final Map.Entry<?,?> entry : ((Map<?,?>) object).entrySet()) {
+				this.name(String.valueOf(entry.getKey()));
+				this.write(entry.getValue());
+			}
+			return this.endObject();
+		}
+
+		final JsonBinder<?> binder = JsonBinder.of(object.getClass());
+		if (binder.isBean()) {
+			binder.write(this, object);
+			return this;
+		}
+
+		return this.value(object.toString());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush () throws IOException {
+		if (this.sink instanceof Flushable) ((Flushable) this.sink).flush();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close () throws IOException {
+		if (this.sink instanceof Closeable) ((Closeable) this.sink).close();
+	}
+
+
+	/**
+	 * Writes the given primitive array, emitting it's elements without boxing them.
+	 * @param array the primitive array
+	 * @return this instance
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private JsonWriter primitiveArray (final Object array) throws IllegalStateException, IOException {
+		if (array instanceof char[]) return this.value(new String((char[]) array));
+
+		this.beginArray();
+		final Appendable sink = this.sink;
+		if (array instanceof int[]) {
+			final int[] elements = (int[]) array;
+			for (int index = 0; index < elements.length; ++index) {
+				if (index > 0) sink.append(", ");
+				this.number(elements[index]);
+			}
+		} else if (array instanceof long[]) {
+			final long[] elements = (long[]) array;
+			for (int index = 0; index < elements.length; ++index) {
+				if (index > 0) sink.append(", ");
+				this.number(elements[index]);
+			}
+		} else if (array instanceof double[]) {
+			final double[] elements = (double[]) array;
+			for (int index = 0; index < elements.length; ++index) {
+				if (index > 0) sink.append(", ");
+				this.number(elements[index]);
+			}
+		} else if (array instanceof float[]) {
+			final float[] elements = (float[]) array;
+			for (int index = 0; index < elements.length; ++index) {
+				if (index > 0) sink.append(", ");
+				if (sink instanceof StringBuilder) ((StringBuilder) sink).append(elements[index]);
+				else sink.append(Float.toString(elements[index]));
+			}
+		} else if (array instanceof short[]) {
+			final short[] elements = (short[]) array;
+			for (int index = 0; index < elements.length; ++index) {
+				if (index > 0) sink.append(", ");
+				this.number(elements[index]);
+			}
+		} else if (array instanceof byte[]) {
+			final byte[] elements = (byte[]) array;
+			for (int index = 0; index < elements.length; ++index) {
+				if (index > 0) sink.append(", ");
+				this.number(elements[index]);
+			}
+		} else {
+			final boolean[] elements = (boolean[]) array;
+			for (int index = 0; index < elements.length; ++index) {
+				if (index > 0) sink.append(", ");
+				sink.append(elements[index] ? "true" : "false");
+			}
+		}
+
+		if (Array.getLength(array) > 0) this.scopes[this.depth - 1] = NONEMPTY_ARRAY;
+		return this.endArray();
+	}
+
+
+	/**
+	 * Writes the given integral number, avoiding an intermediate string if the sink is a string builder.
+	 * @param value the value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void number (final long value) throws IOException {
+		if (this.sink instanceof StringBuilder) ((StringBuilder) this.sink).append(value);
+		else this.sink.append(Long.toString(value));
+	}
+
+
+	/**
+	 * Writes the given floating-point number, avoiding an intermediate string if the sink is a string builder.
+	 * @param value the value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void number (final double value) throws IOException {
+		if (this.sink instanceof StringBuilder) ((StringBuilder) this.sink).append(value);
+		else this.sink.append(Double.toString(value));
+	}
+
+
+	/**
+	 * Prepares the output of a value, by emitting a separator if required.
+	 * @throws IllegalStateException if a map key is expected instead of a value
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void beforeValue () throws IllegalStateException, IOException {
+		if (this.depth == 0) return;
+
+		switch (this.scopes[this.depth - 1]) {
+			case EMPTY_ARRAY:
+				this.scopes[this.depth - 1] = NONEMPTY_ARRAY;
+				break;
+			case NONEMPTY_ARRAY:
+				this.sink.append(", ");
+				break;
+			case DANGLING_NAME:
+				this.scopes[this.depth - 1] = NONEMPTY_OBJECT;
+				break;
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+
+	/**
+	 * Pushes the given scope onto the scope stack.
+	 * @param scope the scope
+	 */
+	private void push (final byte scope) {
+		if (this.depth == this.scopes.length) this.scopes = Arrays.copyOf(this.scopes, 2 * this.depth);
+		this.scopes[this.depth++] = scope;
+	}
+
+
+	/**
+	 * Writes the given text as a quoted and escaped JSON string.
+	 * @param text the text
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void string (final String text) throws IOException {
+		this.sink.append('\'');
+		JsonEscapes.escape(text, this.sink);
+		this.sink.append('\'');
+	}
+}
@@ -1,5 +1,6 @@
 package edu.damago.java.tool;
 
+import java.lang.ref.WeakReference;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -7,13 +8,17 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.WeakHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -26,7 +31,10 @@ import java.util.stream.StreamSupport;
  * @author Sascha Baumeister
  */
 public class RelationalDatabases {
-	static private final Map<ResultSet, ResultSetMetaData> META_DATA_CACHE = new WeakHashMap<>();
+	static private final int MAX_PARAMETER_COUNTS = 0x1000;
+	static private final Map<Connection,StatementCache> STATEMENT_CACHES = new ConcurrentHashMap<>();
+	static private final Map<String,Integer> PARAMETER_COUNTS = new ConcurrentHashMap<>();
+	static private final ThreadLocal<ColumnDescriptor> RECENT_COLUMN_DESCRIPTORS = new ThreadLocal<>();
 
 
 	/**
@@ -41,24 +49,62 @@ public class RelationalDatabases {
 
 
 	/**
-	 * Returns the current row content of the given result set as a row map. 
+	 * Returns whether or not a given SQL type is integral.
+	 * @param type an SQL type
+	 * @return whether or not the given SQL type is integral
+	 * @see java.sql.Types
+	 */
+	static private boolean isIntegralType (final int type) {
+		return type == Types.BIT | type == Types.TINYINT | type == Types.SMALLINT | type == Types.INTEGER | type == Types.BIGINT;
+	}
+
+
+	/**
+	 * Returns whether or not a given SQL type is a character type.
+	 * @param type an SQL type
+	 * @return whether or not the given SQL type is a character type
+	 * @see java.sql.Types
+	 */
+	static private boolean isCharacterType (final int type) {
+		return type == Types.CHAR | type == Types.VARCHAR | type == Types.LONGVARCHAR | type == Types.NCHAR | type == Types.NVARCHAR | type == Types.LONGNVARCHAR;
+	}
+
+
+	/**
+	 * Returns the current row content of the given result set as a row map. The row map
+	 * stores it's values in column order, see {@link Row}. The result set's column descriptor
+	 * is resolved once, and remembered per thread for as long as subsequent calls of the same
+	 * thread pass the same result set; this avoids both per-row meta data queries and locking.
 	 * @param resultSet the result set
 	 * @return the row map
 	 * @throws NullPointerException if the given argument is {@code null}
 	 * @throws SQLException if there is an JDBC related problem
 	 */
 	static public Map<String,Object> toRowMap (final ResultSet resultSet) throws NullPointerException, SQLException {
-		ResultSetMetaData metaData;
-		synchronized (META_DATA_CACHE) {
-			metaData = META_DATA_CACHE.get(resultSet);
-			if (metaData == null) META_DATA_CACHE.put(resultSet, metaData = resultSet.getMetaData());
+		ColumnDescriptor columns = RECENT_COLUMN_DESCRIPTORS.get();
+		if (columns == null || columns.resultSet.get() != resultSet) {
+			columns = new ColumnDescriptor(resultSet);
+			RECENT_COLUMN_DESCRIPTORS.set(columns);
 		}
 
-		final Map<String,Object> rowMap = new HashMap<>();
-		for (int index = 1, columnCount = metaData.getColumnCount(); index <= columnCount; ++index)
-			rowMap.put(metaData.getColumnLabel(index), resultSet.getObject(index));
+		return toRowMap(resultSet, columns);
+	}
+
 
-		return rowMap;
+	/**
+	 * Returns the current row content of the given result set as a row map.
+	 * @param resultSet the result set
+	 * @param columns the result set's column descriptor
+	 * @return the row map
+	 * @throws SQLException if there is an JDBC related problem
+	 */
+	static private Map<String,Object> toRowMap (final ResultSet resultSet, final ColumnDescriptor columns) throws SQLException {
+		final int[] keyColumns = columns.keyColumns;
+		final Object[] values = new Object[keyColumns.length];
+		for (int index = 0; index < keyColumns.length; ++index)
+			values[index] = resultSet.getObject(keyColumns[index] + 1);
+
+		return new Row(columns, values);
 	}
 
 
@@ -70,14 +116,74 @@ public class RelationalDatabases {
 	 * @throws SQLException if there is an JDBC related problem
 	 */
 	static public List<Map<String,Object>> toRowMaps (final ResultSet resultSet) throws NullPointerException, SQLException {
+		final ColumnDescriptor columns = new ColumnDescriptor(resultSet);
 		final List<Map<String,Object>> rowMaps = new ArrayList<>();
 		while (resultSet.next())
-			rowMaps.add(toRowMap(resultSet));
+			rowMaps.add(toRowMap(resultSet, columns));
 
 		return rowMaps;
 	}
 
 
+	/**
+	 * Returns the content of the given result set in columnar form. Integral numeric columns
+	 * are read into {@code long[]} and decimal numeric columns into {@code double[]} storage,
+	 * character columns are dictionary-encoded, and any other columns are stored as objects;
+	 * void values are tracked in null bitmaps, see {@link ColumnTable}. If the result set
+	 * contains multiple columns with the same label, the last of them is represented.
+	 * @param resultSet the result set
+	 * @return the column table
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws SQLException if there is an JDBC related problem
+	 */
+	static public ColumnTable toColumns (final ResultSet resultSet) throws NullPointerException, SQLException {
+		final ColumnDescriptor columns = new ColumnDescriptor(resultSet);
+		final int[] keyColumns = columns.keyColumns;
+		final int[] types = new int[keyColumns.length];
+
+		final ColumnTable.Builder builder = new ColumnTable.Builder();
+		final ColumnTable.ColumnBuilder[] columnBuilders = new ColumnTable.ColumnBuilder[keyColumns.length];
+		for (int index = 0; index < keyColumns.length; ++index) {
+			final int type = columns.types[keyColumns[index]];
+			types[index] = isIntegralType(type) ? Types.BIGINT : isNumericType(type) ? Types.DOUBLE : isCharacterType(type) ? Types.VARCHAR : Types.JAVA_OBJECT;
+			columnBuilders[index] = builder.column(columns.keys[index], index);
+			columnBuilders[index].declare(types[index] == Types.BIGINT ? long.class : types[index] == Types.DOUBLE ? double.class : types[index] == Types.VARCHAR ? String.class : Object.class);
+		}
+
+		while (resultSet.next()) {
+			final int row = builder.row();
+			for (int index = 0; index < keyColumns.length; ++index) {
+				final ColumnTable.ColumnBuilder columnBuilder = columnBuilders[index];
+				final int column = keyColumns[index] + 1;
+
+				switch (types[index]) {
+					case Types.BIGINT: {
+						final long value = resultSet.getLong(column);
+						if (resultSet.wasNull()) columnBuilder.setNull(row);
+						else columnBuilder.setLong(row, value);
+						break;
+					}
+					case Types.DOUBLE: {
+						final double value = resultSet.getDouble(column);
+						if (resultSet.wasNull()) columnBuilder.setNull(row);
+						else columnBuilder.setDouble(row, value);
+						break;
+					}
+					case Types.VARCHAR:
+						columnBuilder.setString(row, resultSet.getString(column));
+						break;
+					default:
+						columnBuilder.setObject(row, resultSet.getObject(column));
+						break;
+				}
+			}
+			builder.endRow();
+		}
+
+		return builder.build();
+	}
+
+
 	/**
 	 * Returns the content of the given result set as a list of table row beans. 
 	 * @param <T> the row bean type
@@ -129,17 +235,12 @@ public class RelationalDatabases {
 	 * @throws SQLException if there is an SQL related problem 
 	 */
 	static public List<Map<String,Object>> executeQuery (final Connection jdbcConnection, final String sql, final Object... parameters) throws NullPointerException, IllegalArgumentException, SQLException {
-		try (PreparedStatement jdbcStatement = jdbcConnection.prepareStatement(sql)) {
-			final int parameterCount = jdbcStatement.getParameterMetaData().getParameterCount();
-			if (parameterCount != parameters.length) throw new IllegalArgumentException("expected " + parameterCount + " arguments, actual count is " + parameters.length);
-
-			for (int index = 0; index < parameters.length; ++index)
-				jdbcStatement.setObject(index + 1, parameters[index]);
-
+		return execute(jdbcConnection, sql, Statement.NO_GENERATED_KEYS, jdbcStatement -> {
+			setParameters(jdbcStatement, sql, parameters);
 			try (ResultSet tableCursor = jdbcStatement.executeQuery()) {
 				return toRowMaps(tableCursor);
 			}
-		}
+		});
 	}
 
 
@@ -159,17 +260,12 @@ public class RelationalDatabases {
 	 * @throws SQLException if there is an SQL related problem 
 	 */
 	static public <T> List<T> executeQuery (final Connection jdbcConnection, final String sql, final Function<ResultSet,T> rowMapper, final Object... parameters) throws NullPointerException, IllegalArgumentException, SQLException {
-		try (PreparedStatement jdbcStatement = jdbcConnection.prepareStatement(sql)) {
-			final int parameterCount = jdbcStatement.getParameterMetaData().getParameterCount();
-			if (parameterCount != parameters.length) throw new IllegalArgumentException("expected " + parameterCount + " arguments, actual count is " + parameters.length);
-
-			for (int index = 0; index < parameters.length; ++index)
-				jdbcStatement.setObject(index + 1, parameters[index]);
-
+		return execute(jdbcConnection, sql, Statement.NO_GENERATED_KEYS, jdbcStatement -> {
+			setParameters(jdbcStatement, sql, parameters);
 			try (ResultSet tableCursor = jdbcStatement.executeQuery()) {
 				return toRowBeans(tableCursor, rowMapper);
 			}
-		}
+		});
 	}
 
 
@@ -186,16 +282,11 @@ public class RelationalDatabases {
 	 * @throws SQLException if there is an SQL related problem 
 	 */
 	static public long executeChange1 (final Connection jdbcConnection, final String sql, final Object... parameters) throws NullPointerException, IllegalArgumentException, SQLException {
-		try (PreparedStatement jdbcStatement = jdbcConnection.prepareStatement(sql)) {
-			final int parameterCount = jdbcStatement.getParameterMetaData().getParameterCount();
-			if (parameterCount != parameters.length) throw new IllegalArgumentException("expected " + parameterCount + " arguments, actual count is " + parameters.length);
-
-			for (int index = 0; index < parameters.length; ++index)
-				jdbcStatement.setObject(index + 1, parameters[index]);
-
+		return execute(jdbcConnection, sql, Statement.NO_GENERATED_KEYS, jdbcStatement -> {
+			setParameters(jdbcStatement, sql, parameters);
 			jdbcStatement.executeUpdate();
 			return jdbcStatement.getLargeUpdateCount();
-		}
+		});
 	}
 
 
@@ -214,12 +305,11 @@ public class RelationalDatabases {
 	 * @throws SQLException if there is an SQL related problem 
 	 */
 	static public <T> long executeChange1 (final Connection jdbcConnection, final String sql, final BiConsumer<PreparedStatement,T> parameterMapper, final T object) throws NullPointerException, IllegalArgumentException, SQLException {
-		try (PreparedStatement jdbcStatement = jdbcConnection.prepareStatement(sql)) {
+		return execute(jdbcConnection, sql, Statement.NO_GENERATED_KEYS, jdbcStatement -> {
 			parameterMapper.accept(jdbcStatement, object);
-
 			jdbcStatement.executeUpdate();
 			return jdbcStatement.getLargeUpdateCount();
-		}
+		});
 	}
 
 
@@ -237,25 +327,10 @@ public class RelationalDatabases {
 	 * @throws SQLException if there is an SQL related problem 
 	 */
 	static public long[][] executeChange2 (final Connection jdbcConnection, final String sql, final Object... parameters) throws NullPointerException, IllegalArgumentException, SQLException {
-		try (PreparedStatement jdbcStatement = jdbcConnection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-			final int parameterCount = jdbcStatement.getParameterMetaData().getParameterCount();
-			if (parameterCount != parameters.length) throw new IllegalArgumentException("expected " + parameterCount + " arguments, actual count is " + parameters.length);
-
-			for (int index = 0; index < parameters.length; ++index)
-				jdbcStatement.setObject(index + 1, parameters[index]);
-
-			final int rowCount = jdbcStatement.executeUpdate();
-			try (ResultSet keyCursor = jdbcStatement.getGeneratedKeys()) {
-				final int columnCount = keyCursor.getMetaData().getColumnCount();
-				final long[][] generatedValues = new long[rowCount][columnCount];
-
-				for (int rowIndex = 0; keyCursor.next(); ++rowIndex)
-					for (int columnIndex = 0; columnIndex < columnCount; ++columnIndex)
-						generatedValues[rowIndex][columnIndex] = keyCursor.getLong(columnIndex + 1);
-
-				return generatedValues;
-			}
-		}
+		return execute(jdbcConnection, sql, Statement.RETURN_GENERATED_KEYS, jdbcStatement -> {
+			setParameters(jdbcStatement, sql, parameters);
+			return generatedValues(jdbcStatement, jdbcStatement.executeUpdate());
+		});
 	}
 
 
@@ -275,20 +350,640 @@ public class RelationalDatabases {
 	 * @throws SQLException if there is an SQL related problem 
 	 */
 	static public <T> long[][] executeChange2 (final Connection jdbcConnection, final String sql, final BiConsumer<PreparedStatement,T> parameterMapper, final T object) throws NullPointerException, IllegalArgumentException, SQLException {
-		try (PreparedStatement jdbcStatement = jdbcConnection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+		return execute(jdbcConnection, sql, Statement.RETURN_GENERATED_KEYS, jdbcStatement -> {
 			parameterMapper.accept(jdbcStatement, object);
+			return generatedValues(jdbcStatement, jdbcStatement.executeUpdate());
+		});
+	}
+
+
+	/**
+	 * Returns the statement cache of the given JDBC connection, creating it if necessary.
+	 * Whenever a cache is created, the caches of all connections which have been closed in
+	 * the meantime are discarded, together with their statements; lookups of existing caches
+	 * don't query any connection state. Note that weak references would not release connections
+	 * here, as cached statements reference their connection. Therefore connections must either
+	 * be closed, or have their cache discarded using {@link #discardStatementCache(Connection)},
+	 * for their cache to be released; connections that are simply dropped remain cached.
+	 * @param jdbcConnection the JDBC connection
+	 * @return the statement cache
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public StatementCache statementCache (final Connection jdbcConnection) throws NullPointerException {
+		final StatementCache cache = STATEMENT_CACHES.get(jdbcConnection);
+		if (cache != null) return cache;
+
+		STATEMENT_CACHES.values().removeIf(StatementCache::isObsolete);
+		return STATEMENT_CACHES.computeIfAbsent(jdbcConnection, StatementCache::new);
+	}
+
+
+	/**
+	 * Discards the statement cache of the given JDBC connection, if any, closing it's statements.
+	 * This allows close-aware code like connection pools to release a connection's cache
+	 * immediately, instead of relying on it being purged once another cache is created.
+	 * @param jdbcConnection the JDBC connection
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws SQLException if there is an SQL related problem
+	 */
+	static public void discardStatementCache (final Connection jdbcConnection) throws NullPointerException, SQLException {
+		final StatementCache cache = STATEMENT_CACHES.remove(jdbcConnection);
+		if (cache != null) cache.clear();
+	}
+
+
+	/**
+	 * Executes the given operation using a prepared statement for the given SQL, which is
+	 * taken from the connection's statement cache, and returned into it afterwards unless
+	 * the operation fails; in the latter case, the statement is closed, and any problem
+	 * closing it is added as a suppressed exception to the operation's exception.
+	 * @param <T> the result type
+	 * @param jdbcConnection the JDBC connection
+	 * @param sql the SQL
+	 * @param autoGeneratedKeys either {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+	 * @param operation the operation to execute
+	 * @return the operation result
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the operation fails because of an illegal argument
+	 * @throws SQLException if there is an SQL related problem
+	 */
+	static private <T> T execute (final Connection jdbcConnection, final String sql, final int autoGeneratedKeys, final StatementOperation<T> operation) throws NullPointerException, IllegalArgumentException, SQLException {
+		final StatementCache cache = statementCache(jdbcConnection);
+		final PreparedStatement jdbcStatement = cache.acquire(sql, autoGeneratedKeys);
+
+		final T result;
+		try {
+			result = operation.execute(jdbcStatement);
+		} catch (final Throwable exception) {
+			try {
+				jdbcStatement.close();
+			} catch (final SQLException e) {
+				exception.addSuppressed(e);
+			}
+			throw exception;
+		}
 
-			final int rowCount = jdbcStatement.executeUpdate();
-			try (ResultSet keyCursor = jdbcStatement.getGeneratedKeys()) {
-				final int columnCount = keyCursor.getMetaData().getColumnCount();
-				final long[][] generatedValues = new long[rowCount][columnCount];
+		cache.release(sql, autoGeneratedKeys, jdbcStatement);
+		return result;
+	}
 
-				for (int rowIndex = 0; keyCursor.next(); ++rowIndex)
-					for (int columnIndex = 0; columnIndex < columnCount; ++columnIndex)
-						generatedValues[rowIndex][columnIndex] = keyCursor.getLong(columnIndex + 1);
 
-				return generatedValues;
+	/**
+	 * Sets the given parameters on the given statement.
+	 * @param jdbcStatement the JDBC statement
+	 * @param sql the statement's SQL
+	 * @param parameters the parameter values
+	 * @throws IllegalArgumentException if the number of given parameters does not
+	 * 			equal the number of question marks within the statement's SQL
+	 * @throws SQLException if there is an SQL related problem
+	 */
+	static private void setParameters (final PreparedStatement jdbcStatement, final String sql, final Object[] parameters) throws IllegalArgumentException, SQLException {
+		final int parameterCount = parameterCount(jdbcStatement, sql);
+		if (parameterCount != parameters.length) throw new IllegalArgumentException("expected " + parameterCount + " arguments, actual count is " + parameters.length);
+
+		for (int index = 0; index < parameters.length; ++index)
+			jdbcStatement.setObject(index + 1, parameters[index]);
+	}
+
+
+	/**
+	 * Returns the number of parameters of the given statement. The count is queried from
+	 * the statement's parameter meta data once per SQL text, which may require a server
+	 * roundtrip, and is cached afterwards; the cache is reset once it holds more than
+	 * {@value #MAX_PARAMETER_COUNTS} SQL texts.
+	 * @param jdbcStatement the JDBC statement
+	 * @param sql the statement's SQL
+	 * @return the parameter count
+	 * @throws SQLException if there is an SQL related problem
+	 */
+	static private int parameterCount (final PreparedStatement jdbcStatement, final String sql) throws SQLException {
+		final Integer cachedParameterCount = PARAMETER_COUNTS.get(sql);
+		if (cachedParameterCount != null) return cachedParameterCount;
+
+		final int parameterCount = jdbcStatement.getParameterMetaData().getParameterCount();
+		if (PARAMETER_COUNTS.size() >= MAX_PARAMETER_COUNTS) PARAMETER_COUNTS.clear();
+		PARAMETER_COUNTS.put(sql, parameterCount);
+		return parameterCount;
+	}
+
+
+	/**
+	 * Returns the auto-generated field values of the given statement's last execution.
+	 * @param jdbcStatement the JDBC statement
+	 * @param rowCount the number of modified rows
+	 * @return the auto-generated values, for each modified row
+	 * @throws SQLException if there is an SQL related problem
+	 */
+	static private long[][] generatedValues (final PreparedStatement jdbcStatement, final int rowCount) throws SQLException {
+		try (ResultSet keyCursor = jdbcStatement.getGeneratedKeys()) {
+			final int columnCount = keyCursor.getMetaData().getColumnCount();
+			final long[][] generatedValues = new long[rowCount][columnCount];
+
+			for (int rowIndex = 0; keyCursor.next(); ++rowIndex)
+				for (int columnIndex = 0; columnIndex < columnCount; ++columnIndex)
+					generatedValues[rowIndex][columnIndex] = keyCursor.getLong(columnIndex + 1);
+
+			return generatedValues;
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class cache the prepared statements of a JDBC connection by their SQL,
+	 * and evict the least recently used statement once their capacity is exceeded, which saves
+	 * the prepare roundtrip for repeatedly executed SQL. Statements are taken out of the cache
+	 * while in use, and are returned into it afterwards; therefore a statement is never used by
+	 * multiple threads at once. Note that instances are thread-safe.
+	 */
+	static public class StatementCache {
+		static private final int DEFAULT_CAPACITY = 64;
+
+		private final Connection connection;
+		private final Map<StatementKey,PreparedStatement> statements;
+		private int capacity;
+		private long hitCount;
+		private long missCount;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param connection the JDBC connection
+		 */
+		private StatementCache (final Connection connection) {
+			this.connection = connection;
+			this.statements = new LinkedHashMap<>();
+			this.capacity = DEFAULT_CAPACITY;
+		}
+
+
+		/**
+		 * Returns the JDBC connection.
+		 * @return the JDBC connection
+		 */
+		public Connection getConnection () {
+			return this.connection;
+		}
+
+
+		/**
+		 * Returns the maximum number of cached statements.
+		 * @return the capacity
+		 */
+		public synchronized int getCapacity () {
+			return this.capacity;
+		}
+
+
+		/**
+		 * Sets the maximum number of cached statements, and closes the least recently used
+		 * statements exceeding it. A capacity of zero disables caching.
+		 * @param capacity the capacity
+		 * @throws IllegalArgumentException if the given capacity is negative
+		 * @throws SQLException if there is an SQL related problem
+		 */
+		public void setCapacity (final int capacity) throws IllegalArgumentException, SQLException {
+			if (capacity < 0) throw new IllegalArgumentException(String.valueOf(capacity));
+
+			final List<PreparedStatement> evictedStatements;
+			synchronized (this) {
+				this.capacity = capacity;
+				evictedStatements = this.evict();
+			}
+			close(evictedStatements);
+		}
+
+
+		/**
+		 * Returns the number of statements currently cached.
+		 * @return the cache size
+		 */
+		public synchronized int size () {
+			return this.statements.size();
+		}
+
+
+		/**
+		 * Returns the number of statement requests served from this cache.
+		 * @return the hit count
+		 */
+		public synchronized long getHitCount () {
+			return this.hitCount;
+		}
+
+
+		/**
+		 * Returns the number of statement requests which required preparing a new statement.
+		 * @return the miss count
+		 */
+		public synchronized long getMissCount () {
+			return this.missCount;
+		}
+
+
+		/**
+		 * Closes and removes all cached statements.
+		 * @throws SQLException if there is an SQL related problem
+		 */
+		public void clear () throws SQLException {
+			final List<PreparedStatement> statements;
+			synchronized (this) {
+				statements = new ArrayList<>(this.statements.values());
+				this.statements.clear();
 			}
+			close(statements);
+		}
+
+
+		/**
+		 * Takes the prepared statement for the given SQL out of this cache, or prepares
+		 * a new one if there is none.
+		 * @param sql the SQL
+		 * @param autoGeneratedKeys either {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+		 * @return the prepared statement
+		 * @throws SQLException if there is an SQL related problem
+		 */
+		private PreparedStatement acquire (final String sql, final int autoGeneratedKeys) throws SQLException {
+			final PreparedStatement jdbcStatement;
+			synchronized (this) {
+				jdbcStatement = this.statements.remove(new StatementKey(sql, autoGeneratedKeys));
+				if (jdbcStatement != null) this.hitCount += 1;
+				else this.missCount += 1;
+			}
+
+			if (jdbcStatement != null && !jdbcStatement.isClosed()) {
+				jdbcStatement.clearParameters();
+				return jdbcStatement;
+			}
+
+			return this.connection.prepareStatement(sql, autoGeneratedKeys);
+		}
+
+
+		/**
+		 * Returns the given prepared statement into this cache. Least recently used statements
+		 * exceeding the capacity are closed.
+		 * @param sql the SQL
+		 * @param autoGeneratedKeys either {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+		 * @param jdbcStatement the prepared statement
+		 * @throws SQLException if there is an SQL related problem
+		 */
+		private void release (final String sql, final int autoGeneratedKeys, final PreparedStatement jdbcStatement) throws SQLException {
+			final List<PreparedStatement> evictedStatements;
+			synchronized (this) {
+				final PreparedStatement replacedStatement = this.statements.put(new StatementKey(sql, autoGeneratedKeys), jdbcStatement);
+				evictedStatements = this.evict();
+				if (replacedStatement != null) evictedStatements.add(replacedStatement);
+			}
+			close(evictedStatements);
+		}
+
+
+		/**
+		 * Removes the least recently used statements exceeding the capacity.
+		 * @return the statements removed
+		 */
+		private List<PreparedStatement> evict () {
+			final List<PreparedStatement> evictedStatements = new ArrayList<>();
+			for (final Iterator<PreparedStatement> iterator = this.statements.values().iterator(); this.statements.size() > this.capacity; iterator.remove())
+				evictedStatements.add(iterator.next());
+			return evictedStatements;
+		}
+
+
+		/**
+		 * Returns whether or not this cache's connection has been closed.
+		 * @return {@code true} if the connection is closed, {@code false} otherwise
+		 */
+		private boolean isObsolete () {
+			try {
+				return this.connection.isClosed();
+			} catch (final SQLException e) {
+				return true;
+			}
+		}
+
+
+		/**
+		 * Closes the given statements.
+		 * @param statements the statements
+		 * @throws SQLException if there is an SQL related problem
+		 */
+		static private void close (final List<PreparedStatement> statements) throws SQLException {
+			SQLException exception = null;
+			for (final PreparedStatement jdbcStatement : statements) {
+				try {
+					jdbcStatement.close();
+				} catch (final SQLException e) {
+					if (exception == null) exception = e;
+					else exception.addSuppressed(e);
+				}
+			}
+			if (exception != null) throw exception;
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class represent statement cache keys.
+	 */
+	static private class StatementKey {
+		private final String sql;
+		private final int autoGeneratedKeys;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param sql the SQL
+		 * @param autoGeneratedKeys either {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+		 */
+		public StatementKey (final String sql, final int autoGeneratedKeys) {
+			this.sql = sql;
+			this.autoGeneratedKeys = autoGeneratedKeys;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode () {
+			return 31 * this.sql.hashCode() + this.autoGeneratedKeys;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals (final Object object) {
+			if (!(object instanceof StatementKey)) return false;
+			final StatementKey key = (StatementKey) object;
+			return this.sql.equals(key.sql) & this.autoGeneratedKeys == key.autoGeneratedKeys;
+		}
+	}
+
+
+
+	/**
+	 * Instances of this interface execute operations on prepared statements.
+	 * @param <T> the result type
+	 */
+	@FunctionalInterface
+	static private interface StatementOperation<T> {
+
+		/**
+		 * Executes this operation on the given statement.
+		 * @param jdbcStatement the prepared statement
+		 * @return the operation result
+		 * @throws SQLException if there is an SQL related problem
+		 */
+		T execute (PreparedStatement jdbcStatement) throws SQLException;
+	}
+
+
+
+	/**
+	 * Instances of this class represent table rows as maps of column labels to column values.
+	 * In contrast to general purpose maps, the values are stored in a single array in column
+	 * order, while the mapping of column labels to array indices is shared between all rows
+	 * of a result set. If a result set contains multiple columns with the same label, the
+	 * last of them is represented. Row maps are modifiable; entries for labels which are not
+	 * column labels are stored separately.
+	 */
+	static public class Row extends AbstractMap<String,Object> {
+		static private final Object ABSENT = new Object();
+
+		private final ColumnDescriptor columns;
+		private final Object[] values;
+		private Map<String,Object> extras;
+		private int size;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param columns the column descriptor
+		 * @param values the values in column key order
+		 */
+		private Row (final ColumnDescriptor columns, final Object[] values) {
+			this.columns = columns;
+			this.values = values;
+			this.size = values.length;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int size () {
+			return this.extras == null ? this.size : this.size + this.extras.size();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean containsKey (final Object key) {
+			final Integer index = this.columns.keyIndices.get(key);
+			if (index != null) return this.values[index] != ABSENT;
+			return this.extras != null && this.extras.containsKey(key);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object get (final Object key) {
+			final Integer index = this.columns.keyIndices.get(key);
+			if (index != null) return this.values[index] == ABSENT ? null : this.values[index];
+			return this.extras == null ? null : this.extras.get(key);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object put (final String key, final Object value) {
+			final Integer index = this.columns.keyIndices.get(key);
+			if (index == null) {
+				if (this.extras == null) this.extras = new HashMap<>();
+				return this.extras.put(key, value);
+			}
+
+			final Object result = this.values[index];
+			this.values[index] = value;
+			if (result != ABSENT) return result;
+			this.size += 1;
+			return null;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object remove (final Object key) {
+			final Integer index = this.columns.keyIndices.get(key);
+			if (index == null) return this.extras == null ? null : this.extras.remove(key);
+
+			final Object result = this.values[index];
+			if (result == ABSENT) return null;
+			this.values[index] = ABSENT;
+			this.size -= 1;
+			return result;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Set<Map.Entry<String,Object>> entrySet () {
+			return new AbstractSet<>() {
+				public int size () {
+					return Row.this.size();
+				}
+
+				public Iterator<Map.Entry<String,Object>> iterator () {
+					return new RowEntryIterator();
+				}
+			};
+		}
+
+
+
+		/**
+		 * Instances of this class iterate over the entries of a row, column entries first.
+		 */
+		private class RowEntryIterator implements Iterator<Map.Entry<String,Object>> {
+			private int nextIndex;
+			private Iterator<Map.Entry<String,Object>> extraIterator;
+			private String lastKey;
+
+
+			/**
+			 * Initializes a new instance.
+			 */
+			public RowEntryIterator () {
+				this.nextIndex = this.skipAbsent(0);
+			}
+
+
+			/**
+			 * {@inheritDoc}
+			 */
+			public boolean hasNext () {
+				if (this.nextIndex < Row.this.values.length) return true;
+				if (this.extraIterator == null) {
+					if (Row.this.extras == null) return false;
+					this.extraIterator = Row.this.extras.entrySet().iterator();
+				}
+				return this.extraIterator.hasNext();
+			}
+
+
+			/**
+			 * {@inheritDoc}
+			 * @throws NoSuchElementException {@inheritDoc}
+			 */
+			public Map.Entry<String,Object> next () {
+				if (!this.hasNext()) throw new NoSuchElementException();
+
+				if (this.extraIterator != null) {
+					final Map.Entry<String,Object> entry = this.extraIterator.next();
+					this.lastKey = entry.getKey();
+					return entry;
+				}
+
+				final int index = this.nextIndex;
+				this.nextIndex = this.skipAbsent(index + 1);
+				this.lastKey = Row.this.columns.keys[index];
+				return new AbstractMap.SimpleEntry<>(this.lastKey, Row.this.values[index]) {
+					static private final long serialVersionUID = 1L;
+
+					public Object setValue (final Object value) {
+						Row.this.values[index] = value;
+						return super.setValue(value);
+					}
+				};
+			}
+
+
+			/**
+			 * {@inheritDoc}
+			 * @throws IllegalStateException {@inheritDoc}
+			 */
+			public void remove () {
+				if (this.lastKey == null) throw new IllegalStateException();
+
+				if (this.extraIterator != null) this.extraIterator.remove();
+				else Row.this.remove(this.lastKey);
+				this.lastKey = null;
+			}
+
+
+			/**
+			 * Returns the first index starting from the given one whose value is present.
+			 * @param index the start index
+			 * @return the index of the next present value, or the value count if there is none
+			 */
+			private int skipAbsent (int index) {
+				while (index < Row.this.values.length && Row.this.values[index] == ABSENT) index += 1;
+				return index;
+			}
+		}
+	}
+
+
+
+	/**
+	 * Instances of this class describe the columns of a result set, with their labels and
+	 * JDBC type codes resolved once from it's meta data. The row map keys are the distinct
+	 * column labels, each associated with the last column carrying it. Instances are
+	 * immutable, and are therefore shared between the rows of a result set without locking.
+	 */
+	static private class ColumnDescriptor {
+		private final WeakReference<ResultSet> resultSet;
+		private final String[] labels;
+		private final int[] types;
+		private final String[] keys;
+		private final int[] keyColumns;
+		private final Map<String,Integer> keyIndices;
+
+
+		/**
+		 * Initializes a new instance based on the given result set's meta data.
+		 * @param resultSet the result set, which is referenced weakly
+		 * @throws SQLException if there is an SQL related problem
+		 */
+		public ColumnDescriptor (final ResultSet resultSet) throws SQLException {
+			final ResultSetMetaData metaData = resultSet.getMetaData();
+			final int columnCount = metaData.getColumnCount();
+			this.resultSet = new WeakReference<>(resultSet);
+			this.labels = new String[columnCount];
+			this.types = new int[columnCount];
+
+			for (int index = 0; index < columnCount; ++index) {
+				this.labels[index] = metaData.getColumnLabel(index + 1);
+				this.types[index] = metaData.getColumnType(index + 1);
+			}
+
+			final Map<String,Integer> lastColumns = new LinkedHashMap<>();
+			for (int index = 0; index < columnCount; ++index) {
+				lastColumns.remove(this.labels[index]);
+				lastColumns.put(this.labels[index], index);
+			}
+
+			this.keys = lastColumns.keySet().toArray(new String[0]);
+			this.keyColumns = lastColumns.values().stream().mapToInt(Integer::intValue).toArray();
+			this.keyIndices = new HashMap<>();
+			for (int index = 0; index < this.keys.length; ++index)
+				this.keyIndices.put(this.keys[index], index);
 		}
 	}
 
@@ -299,6 +994,7 @@ public class RelationalDatabases {
 	 */
 	static private class RowMapIterator implements Iterator<Map<String,Object>> {
 		private final ResultSet delegate;
+		private ColumnDescriptor columns;
 		private Boolean hasNext;
 		private SQLException problem;
 
@@ -350,7 +1046,8 @@ public class RelationalDatabases {
 			}
 
 			try {
-				return toRowMap(this.delegate);
+				if (this.columns == null) this.columns = new ColumnDescriptor(this.delegate);
+				return toRowMap(this.delegate, this.columns);
 			} catch (final SQLException e) {
 				final NoSuchElementException exception = new NoSuchElementException();
 				exception.initCause(e);
@@ -7,13 +7,10 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import edu.damago.java.tool.JSON;
+import edu.damago.java.tool.RelationalDatabases;
 
 
 /**
@@ -98,24 +95,16 @@ public class World2App {
 	 * @param arguments the arguments
 	 * @throws NullPointerException if the given argument is {@code null}
 	 * @throws SQLException if there is an SQL related problem
+	 * @throws IOException if there is an I/O related problem
 	 */
-	static private void processQueryCountriesCommand (final Connection jdbcConnection, final String arguments) throws NullPointerException, SQLException {
+	static private void processQueryCountriesCommand (final Connection jdbcConnection, final String arguments) throws NullPointerException, SQLException, IOException {
 		try (PreparedStatement jdbcStatement = jdbcConnection.prepareStatement(QUERY_COUNTRIES)) {
 			try (ResultSet tableCursor = jdbcStatement.executeQuery()) {
-				final ResultSetMetaData metaData = tableCursor.getMetaData();
-				final List<Map<String,Object>> rowMaps = new ArrayList<>();
-
+				System.out.println("Countries:");
 				while (tableCursor.next()) {
-					final Map<String,Object> rowMap = new HashMap<>();
-					rowMaps.add(rowMap);
-
-					for (int index = 1; index <= metaData.getColumnCount(); ++index)
-						rowMap.put(metaData.getColumnLabel(index), tableCursor.getObject(index));
+					JSON.stringify(RelationalDatabases.toRowMap(tableCursor), System.out);
+					System.out.println();
 				}
-
-				System.out.println("Countries:");
-				for (final Map<String,Object> rowMap : rowMaps)
-					System.out.println(JSON.stringify(rowMap));
 			}
 		}
 	}
@@ -127,26 +116,18 @@ public class World2App {
 	 * @param arguments the arguments
 	 * @throws NullPointerException if the given argument is {@code null}
 	 * @throws SQLException if there is an SQL related problem
+	 * @throws IOException if there is an I/O related problem
 	 */
-	static private void processQueryLanguagesCommand (final Connection jdbcConnection, final String arguments) throws NullPointerException, SQLException {
+	static private void processQueryLanguagesCommand (final Connection jdbcConnection, final String arguments) throws NullPointerException, SQLException, IOException {
 		try (PreparedStatement jdbcStatement = jdbcConnection.prepareStatement(QUERY_LANGUAGES)) {
 			jdbcStatement.setString(1, arguments);
 
 			try (ResultSet tableCursor = jdbcStatement.executeQuery()) {
-				final ResultSetMetaData metaData = tableCursor.getMetaData();
-				final List<Map<String,Object>> rowMaps = new ArrayList<>();
-
+				System.out.println("Languages of country: " + arguments);
 				while (tableCursor.next()) {
-					final Map<String,Object> rowMap = new HashMap<>();
-					rowMaps.add(rowMap);
-
-					for (int index = 1; index <= metaData.getColumnCount(); ++index)
-						rowMap.put(metaData.getColumnLabel(index), tableCursor.getObject(index));
+					JSON.stringify(RelationalDatabases.toRowMap(tableCursor), System.out);
+					System.out.println();
 				}
-
-				System.out.println("Languages of country: " + arguments);
-				for (final Map<String,Object> rowMap : rowMaps)
-					System.out.println(JSON.stringify(rowMap));
 			}
 		}
 	}
@@ -159,31 +140,20 @@ public class World2App {
 	 * @param arguments the arguments
 	 * @throws NullPointerException if the given argument is {@code null}
 	 * @throws SQLException if there is an SQL related problem
+	 * @throws IOException if there is an I/O related problem
 	 */
-	static private void processQueryCitiesCommand (final Connection jdbcConnection, final String arguments) throws NullPointerException, SQLException {
+	static private void processQueryCitiesCommand (final Connection jdbcConnection, final String arguments) throws NullPointerException, SQLException, IOException {
 		try (PreparedStatement jdbcStatement = jdbcConnection.prepareStatement(QUERY_CITIES)) {
 			jdbcStatement.setString(1, arguments);
 
 			try (ResultSet tableCursor = jdbcStatement.executeQuery()) {
-				final ResultSetMetaData metaData = tableCursor.getMetaData();
-				final List<Map<String,Object>> rowMaps = new ArrayList<>();
-
+				System.out.println("Cities of country: " + arguments);
 				while (tableCursor.next()) {
-					final Map<String,Object> rowMap = new HashMap<>();
-					rowMaps.add(rowMap);
-
-					for (int index = 1; index <= metaData.getColumnCount(); ++index)
-						rowMap.put(metaData.getColumnLabel(index), tableCursor.getObject(index));
-
-					// rowMap.put("capital", tableCursor.getBoolean(metaData.getColumnCount()));
-				}
-
-				for (final Map<String,Object> rowMap : rowMaps)
+					final Map<String,Object> rowMap = RelationalDatabases.toRowMap(tableCursor);
 					rowMap.put("capital", rowMap.get("capital").equals(1L));
-
-				System.out.println("Cities of country: " + arguments);
-				for (final Map<String,Object> rowMap : rowMaps)
-					System.out.println(JSON.stringify(rowMap));
+					JSON.stringify(rowMap, System.out);
+					System.out.println();
+				}
 			}
 		}
 	}
@@ -195,26 +165,18 @@ public class World2App {
 	 * @param arguments the arguments
 	 * @throws NullPointerException if the given argument is {@code null}
 	 * @throws SQLException if there is an SQL related problem
+	 * @throws IOException if there is an I/O related problem
 	 */
-	static private void processQueryNonCapitalsCommand (final Connection jdbcConnection, final String arguments) throws NullPointerException, SQLException {
+	static private void processQueryNonCapitalsCommand (final Connection jdbcConnection, final String arguments) throws NullPointerException, SQLException, IOException {
 		try (PreparedStatement jdbcStatement = jdbcConnection.prepareCall(QUERY_NON_CAPITAL_CITIES)) {
 			jdbcStatement.setString(1, arguments);
 
 			try (ResultSet tableCursor = jdbcStatement.executeQuery()) {
-				final ResultSetMetaData metaData = tableCursor.getMetaData();
-				final List<Map<String,Object>> rowMaps = new ArrayList<>();
-
+				System.out.println("Non-capital cities of country: " + arguments);
 				while (tableCursor.next()) {
-					final Map<String,Object> rowMap = new HashMap<>();
-					rowMaps.add(rowMap);
-
-					for (int index = 1; index <= metaData.getColumnCount(); ++index)
-						rowMap.put(metaData.getColumnLabel(index), tableCursor.getObject(index));
+					JSON.stringify(RelationalDatabases.toRowMap(tableCursor), System.out);
+					System.out.println();
 				}
-
-				System.out.println("Non-capital cities of country: " + arguments);
-				for (final Map<String,Object> rowMap : rowMaps)
-					System.out.println(JSON.stringify(rowMap));
 			}
 		}
 	}